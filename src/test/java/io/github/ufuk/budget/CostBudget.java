@@ -0,0 +1,28 @@
+package io.github.ufuk.budget;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Measures bytes allocated, CPU time and wall time of each test on the thread running it, see {@link CostBudgetExtension}.
+ * A test exceeding any of the limits fails, negative limits (the defaults) are not enforced, the test is only measured.
+ * When both a test class and its method are annotated, the method's budget is used.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ExtendWith(CostBudgetExtension.class)
+public @interface CostBudget {
+
+    long maxAllocatedBytes() default -1;
+
+    long maxCpuMillis() default -1;
+
+    long maxWallMillis() default -1;
+
+}
@@ -0,0 +1,171 @@
+package io.github.ufuk.budget;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * Measures each test method invocation with com.sun.management.ThreadMXBean:
+ * - bytes allocated and CPU time are those of the thread running the test, work handed to other threads isn't counted
+ * - about a kilobyte allocated by JUnit itself to invoke the method is included, and the first test of a class
+ *   also pays for loading and initializing classes
+ * Measurements are published as report entries, and written to target/cost-budget/<test class name>.txt
+ * after all tests of the class ran (the directory can be changed with the cost-budget.report-directory parameter).
+ */
+public class CostBudgetExtension implements InvocationInterceptor, AfterAllCallback {
+
+    public static final String REPORT_DIRECTORY_PARAMETER = "cost-budget.report-directory";
+
+    private static final String DEFAULT_REPORT_DIRECTORY = "target/cost-budget";
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(CostBudgetExtension.class);
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static {
+        if (THREADS.isThreadAllocatedMemorySupported()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+        if (THREADS.isCurrentThreadCpuTimeSupported()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+                                    ExtensionContext extensionContext) throws Throwable {
+        measure(invocation, extensionContext);
+    }
+
+    @Override
+    public void interceptTestTemplateMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+                                            ExtensionContext extensionContext) throws Throwable {
+        measure(invocation, extensionContext);
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        @SuppressWarnings("unchecked")
+        List<Measurement> measurements = context.getStore(NAMESPACE).remove(Measurement.class, List.class);
+        if (measurements == null || measurements.isEmpty()) {
+            return;
+        }
+
+        Path directory = Path.of(context.getConfigurationParameter(REPORT_DIRECTORY_PARAMETER).orElse(DEFAULT_REPORT_DIRECTORY));
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-80s %16s %10s %10s  %s", "test", "allocated bytes", "cpu ms", "wall ms", "budget"));
+        for (Measurement measurement : measurements) {
+            lines.add(measurement.toReportLine());
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.write(directory.resolve(context.getRequiredTestClass().getName() + ".txt"), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cost report couldn't be written to " + directory, e);
+        }
+    }
+
+    private void measure(Invocation<Void> invocation, ExtensionContext context) throws Throwable {
+        CostBudget budget = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), CostBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), CostBudget.class))
+                .orElse(null);
+
+        long allocatedBytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long cpuNanosBefore = THREADS.getCurrentThreadCpuTime();
+        long wallNanosBefore = System.nanoTime();
+        Throwable failure = null;
+        try {
+            invocation.proceed();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        long wallNanos = System.nanoTime() - wallNanosBefore;
+        long cpuNanos = THREADS.getCurrentThreadCpuTime() - cpuNanosBefore;
+        long allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        String test = context.getParent().flatMap(ExtensionContext::getTestMethod).isPresent()
+                ? context.getRequiredTestMethod().getName() + " " + context.getDisplayName() // an invocation of a parameterized test
+                : context.getDisplayName();
+        Measurement measurement = new Measurement(test, allocatedBytes, cpuNanos, wallNanos, budget);
+        measurements(context).add(measurement);
+        context.publishReportEntry("cost", measurement.toString());
+
+        if (failure != null) { // the test's own failure is more important than its cost
+            throw failure;
+        }
+        List<String> violations = measurement.violations();
+        if (!violations.isEmpty()) {
+            throw new AssertionFailedError("Cost budget exceeded: " + String.join(", ", violations));
+        }
+    }
+
+    // Kept in the store of the test class, so they are collected across the methods of the class
+    @SuppressWarnings("unchecked")
+    private static List<Measurement> measurements(ExtensionContext context) {
+        ExtensionContext classContext = context;
+        while (classContext.getTestMethod().isPresent()) {
+            classContext = classContext.getParent().orElseThrow();
+        }
+        return classContext.getStore(NAMESPACE).getOrComputeIfAbsent(Measurement.class, key -> new CopyOnWriteArrayList<Measurement>(), List.class);
+    }
+
+    private record Measurement(String test, long allocatedBytes, long cpuNanos, long wallNanos, CostBudget budget) {
+
+        List<String> violations() {
+            List<String> violations = new ArrayList<>();
+            if (budget == null) {
+                return violations;
+            }
+            if (budget.maxAllocatedBytes() >= 0 && allocatedBytes > budget.maxAllocatedBytes()) {
+                violations.add("allocated " + allocatedBytes + " bytes > " + budget.maxAllocatedBytes());
+            }
+            if (budget.maxCpuMillis() >= 0 && cpuNanos > budget.maxCpuMillis() * 1_000_000) {
+                violations.add("cpu " + millis(cpuNanos) + " ms > " + budget.maxCpuMillis());
+            }
+            if (budget.maxWallMillis() >= 0 && wallNanos > budget.maxWallMillis() * 1_000_000) {
+                violations.add("wall " + millis(wallNanos) + " ms > " + budget.maxWallMillis());
+            }
+            return violations;
+        }
+
+        String toReportLine() {
+            List<String> limits = new ArrayList<>();
+            if (budget != null && budget.maxAllocatedBytes() >= 0) {
+                limits.add("bytes<=" + budget.maxAllocatedBytes());
+            }
+            if (budget != null && budget.maxCpuMillis() >= 0) {
+                limits.add("cpu<=" + budget.maxCpuMillis());
+            }
+            if (budget != null && budget.maxWallMillis() >= 0) {
+                limits.add("wall<=" + budget.maxWallMillis());
+            }
+            String status = violations().isEmpty() ? "" : " EXCEEDED";
+            return String.format("%-80s %16d %10s %10s  %s%s", test, allocatedBytes, millis(cpuNanos), millis(wallNanos),
+                    limits.isEmpty() ? "-" : String.join(" ", limits), status);
+        }
+
+        @Override
+        public String toString() {
+            return "allocated " + allocatedBytes + " bytes, cpu " + millis(cpuNanos) + " ms, wall " + millis(wallNanos) + " ms";
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.3f", nanos / 1_000_000.0);
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.github.ufuk.java07;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after pairs of {@link Java07Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java07Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java07Benchmarks {
+
+    private static final String[] ANSWERS = {"Yes", "No", "Maybe"};
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    String[] answers;
+
+    Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        answers = new String[size];
+        for (int i = 0; i < size; i++) {
+            answers[i] = new String(ANSWERS[i % ANSWERS.length]); // not interned, like the strings read from an input
+        }
+
+        file = Files.createTempFile("java07-benchmarks", ".txt");
+        Files.write(file, "Hello Test 1\n".repeat(size).getBytes());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void if_else_chain_by_string_before(Blackhole blackhole) {
+        for (String answer : answers) {
+            if ("Yes".equals(answer)) {
+                blackhole.consume(1);
+            } else if ("No".equals(answer)) {
+                blackhole.consume(2);
+            } else {
+                blackhole.consume(3);
+            }
+        }
+    }
+
+    @Benchmark
+    public void switch_statements_by_string_after(Blackhole blackhole) {
+        for (String answer : answers) {
+            switch (answer) {
+                case "Yes":
+                    blackhole.consume(1);
+                    break;
+                case "No":
+                    blackhole.consume(2);
+                    break;
+                default:
+                    blackhole.consume(3);
+            }
+        }
+    }
+
+    @Benchmark
+    public int read_file_with_nio_channel_loop_before() throws IOException {
+        int checksum = 0;
+        try (RandomAccessFile aFile = new RandomAccessFile(file.toFile(), "r");
+             FileChannel channel = aFile.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                for (int i = 0; i < buffer.limit(); i++) {
+                    checksum += (char) buffer.get();
+                }
+                buffer.clear();
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int read_file_with_read_all_bytes_after() throws IOException {
+        int checksum = 0;
+        for (byte b : Files.readAllBytes(file)) {
+            checksum += (char) b;
+        }
+        return checksum;
+    }
+
+}
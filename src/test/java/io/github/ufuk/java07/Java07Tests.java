@@ -1,18 +1,26 @@
 package io.github.ufuk.java07;
 
+import io.github.ufuk.java07.examples.DoubleReduceOp;
+import io.github.ufuk.java07.examples.FileTreeCopier;
 import io.github.ufuk.java07.examples.ForkJoinArraySumTask;
+import io.github.ufuk.java07.examples.ForkJoinReduction;
+import io.github.ufuk.java07.examples.LongReduceOp;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Further readings:
@@ -124,6 +132,30 @@ class Java07Tests {
         Files.delete(pathTestFile4);
     }
 
+    @Test
+    void copy_directory_trees_with_nio_channel_transfers(@TempDir Path source, @TempDir Path target) throws IOException {
+        Files.createDirectories(source.resolve("a/b"));
+        Files.writeString(source.resolve("test1.txt"), "Hello Test 1");
+        Files.writeString(source.resolve("a/test2.txt"), "Hello Test 2");
+        Files.write(source.resolve("a/b/test3.bin"), new byte[1024 * 1024]);
+        Files.setLastModifiedTime(source.resolve("a/test2.txt"), FileTime.fromMillis(0));
+
+        // copies files in parallel, bytes are transferred by the kernel
+        FileTreeCopier copier = new FileTreeCopier(4);
+        copier.copyTree(source, target);
+
+        assertThat(Files.mismatch(source.resolve("test1.txt"), target.resolve("test1.txt"))).isEqualTo(-1);
+        assertThat(Files.mismatch(source.resolve("a/test2.txt"), target.resolve("a/test2.txt"))).isEqualTo(-1);
+        assertThat(Files.mismatch(source.resolve("a/b/test3.bin"), target.resolve("a/b/test3.bin"))).isEqualTo(-1);
+        assertThat(Files.getLastModifiedTime(target.resolve("a/test2.txt"))).isEqualTo(FileTime.fromMillis(0));
+
+        FileTreeCopier.Progress progress = copier.progress();
+        assertThat(progress.files()).isEqualTo(3);
+        assertThat(progress.bytes()).isEqualTo(12 + 12 + 1024 * 1024);
+        assertThat(copier.progress().elapsedNanos()).isEqualTo(progress.elapsedNanos()); // stopped with the copy
+        System.out.println("Copied " + progress.bytes() + " bytes with " + progress.bytesPerSecond() + " bytes/sec");
+    }
+
     @Test
     void read_large_files_with_nio_channel() {
         try (RandomAccessFile aFile = new RandomAccessFile("src/test/resources/test1.txt", "r");
@@ -133,7 +165,7 @@ class Java07Tests {
             while (channel.read(buffer) > 0) {
                 buffer.flip();
                 for (int i = 0; i < buffer.limit(); i++) {
-                    char readChar = (char) buffer.get();
+                    char readChar = (char) buffer.get(); // works for ASCII only, see Java22Tests for a UTF-8 safe and faster way
 
                     System.out.print(readChar);
                 }
@@ -200,4 +232,34 @@ class Java07Tests {
         assertThat(result).isEqualTo(5050);
     }
 
+    @Test
+    void reduce_primitive_arrays_with_fork_join_framework_without_boxing() {
+        // Sum of these numbers doesn't fit into an int
+        int[] array = new int[1_000_000];
+        Arrays.fill(array, Integer.MAX_VALUE);
+
+        try (ForkJoinPool pool = new ForkJoinPool()) {
+            assertThat(ForkJoinReduction.reduce(pool, array, LongReduceOp.sum())).isEqualTo(1_000_000L * Integer.MAX_VALUE);
+
+            long[] longs = {5, 3, 9, -1, 7};
+            assertThat(ForkJoinReduction.reduce(pool, longs, LongReduceOp.min())).isEqualTo(-1);
+            assertThat(ForkJoinReduction.reduce(pool, longs, LongReduceOp.max())).isEqualTo(9);
+            assertThat(ForkJoinReduction.reduce(pool, longs, LongReduceOp.countIf(value -> value > 4))).isEqualTo(3);
+
+            double[] doubles = {0.5, 1.5, 2.5, 3.5};
+            assertThat(ForkJoinReduction.reduce(pool, doubles, DoubleReduceOp.sum())).isEqualTo(8.0);
+            assertThat(ForkJoinReduction.histogram(pool, doubles, 0.0, 4.0, 2)).containsExactly(2, 2);
+
+            double[] withNaN = {Double.NaN, 0.5, Double.NaN, 3.5};
+            assertThat(ForkJoinReduction.histogram(pool, withNaN, 0.0, 4.0, 2)).containsExactly(1, 1);
+
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> {
+                        ForkJoinReduction.reduce(pool, longs, LongReduceOp.sum(), 0); // throws exception, would never stop splitting
+                    }
+            );
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+package io.github.ufuk.java07.examples;
+
+import java.util.function.DoublePredicate;
+
+// Associative reduction over double values into a primitive double accumulator
+public interface DoubleReduceOp {
+
+    double identity();
+
+    double accumulate(double accumulator, double value);
+
+    double combine(double left, double right);
+
+    static DoubleReduceOp sum() {
+        return new DoubleReduceOp() {
+            @Override
+            public double identity() {
+                return 0.0;
+            }
+
+            @Override
+            public double accumulate(double accumulator, double value) {
+                return accumulator + value;
+            }
+
+            @Override
+            public double combine(double left, double right) {
+                return left + right;
+            }
+        };
+    }
+
+    static DoubleReduceOp min() {
+        return new DoubleReduceOp() {
+            @Override
+            public double identity() {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            @Override
+            public double accumulate(double accumulator, double value) {
+                return Math.min(accumulator, value);
+            }
+
+            @Override
+            public double combine(double left, double right) {
+                return Math.min(left, right);
+            }
+        };
+    }
+
+    static DoubleReduceOp max() {
+        return new DoubleReduceOp() {
+            @Override
+            public double identity() {
+                return Double.NEGATIVE_INFINITY;
+            }
+
+            @Override
+            public double accumulate(double accumulator, double value) {
+                return Math.max(accumulator, value);
+            }
+
+            @Override
+            public double combine(double left, double right) {
+                return Math.max(left, right);
+            }
+        };
+    }
+
+    static DoubleReduceOp countIf(DoublePredicate predicate) { // counts are exact, arrays can't exceed 2^53 elements
+        return new DoubleReduceOp() {
+            @Override
+            public double identity() {
+                return 0.0;
+            }
+
+            @Override
+            public double accumulate(double accumulator, double value) {
+                return predicate.test(value) ? accumulator + 1 : accumulator;
+            }
+
+            @Override
+            public double combine(double left, double right) {
+                return left + right;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,162 @@
+package io.github.ufuk.java07.examples;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Copies files with FileChannel.transferTo, which lets the kernel move the bytes (e.g. sendfile or copy_file_range on Linux)
+ * instead of copying them through a buffer in the heap.
+ * Directory trees are walked on the calling thread, while files are copied by a fixed number of workers.
+ */
+public class FileTreeCopier {
+
+    private final int parallelism;
+
+    private final LongAdder bytesCopied = new LongAdder();
+
+    private final LongAdder filesCopied = new LongAdder();
+
+    private volatile long startNanos = System.nanoTime();
+
+    private volatile long elapsedNanos = -1; // frozen when copyTree returns, so the rate doesn't decay afterwards, -1 until then
+
+    public FileTreeCopier(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    // Copies a single file, replaces the target if it exists
+    public void copyFile(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) { // transferTo may transfer fewer bytes than requested
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                bytesCopied.add(transferred);
+            }
+        }
+        copyAttributes(source, target);
+        filesCopied.increment();
+    }
+
+    // Copies the source directory into the target directory, replaces existing files
+    public void copyTree(Path source, Path target) throws IOException {
+        elapsedNanos = -1;
+        startNanos = System.nanoTime();
+
+        Semaphore inFlight = new Semaphore(parallelism * 2); // bounds the queued tasks, walking a huge tree shouldn't fill the heap
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Path[]> directories = new ArrayList<>();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    Path targetDirectory = target.resolve(source.relativize(directory).toString());
+                    Files.createDirectories(targetDirectory);
+                    directories.add(new Path[]{directory, targetDirectory});
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (failure.get() != null) {
+                        return FileVisitResult.TERMINATE;
+                    }
+
+                    Path targetFile = target.resolve(source.relativize(file).toString());
+                    if (!attributes.isRegularFile()) { // symbolic links and special files
+                        Files.copy(file, targetFile, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    inFlight.acquireUninterruptibly();
+                    executorService.execute(() -> {
+                        try {
+                            copyFile(file, targetFile);
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            executorService.shutdown();
+            try {
+                awaitTermination(executorService);
+            } finally {
+                elapsedNanos = System.nanoTime() - startNanos;
+            }
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        // Directory times change while files are written into them, so they are copied at last
+        for (Path[] directory : directories) {
+            copyAttributes(directory[0], directory[1]);
+        }
+    }
+
+    public Progress progress() {
+        long elapsed = elapsedNanos;
+        return new Progress(filesCopied.sum(), bytesCopied.sum(), elapsed >= 0 ? elapsed : System.nanoTime() - startNanos);
+    }
+
+    private static void copyAttributes(Path source, Path target) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        Files.getFileAttributeView(target, BasicFileAttributeView.class)
+                .setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+
+        PosixFileAttributeView posixView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (posixView != null) {
+            posixView.setPermissions(Files.readAttributes(source, PosixFileAttributes.class).permissions());
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executorService) throws IOException {
+        try {
+            while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keeps waiting, copying large files may take long
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Copying interrupted", e);
+        }
+    }
+
+    public record Progress(long files, long bytes, long elapsedNanos) {
+
+        public double bytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1_000_000_000.0 / elapsedNanos;
+        }
+
+    }
+
+}
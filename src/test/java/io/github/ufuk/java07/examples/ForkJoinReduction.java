@@ -0,0 +1,352 @@
+package io.github.ufuk.java07.examples;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Same divide and conquer idea as ForkJoinArraySumTask, but:
+ * - partial results are kept in primitive fields of RecursiveAction instead of being returned as boxed Integers
+ * - accumulators are long/double, so summing a large int[] doesn't overflow
+ * - leaf tasks do nothing but looping, no printing
+ */
+public final class ForkJoinReduction {
+
+    // Roughly 4 leaf tasks per worker is enough for work stealing to balance the load
+    private static final int LEAF_TASKS_PER_WORKER = 4;
+
+    private static final int MIN_THRESHOLD = 1 << 13;
+
+    private ForkJoinReduction() {
+    }
+
+    public static long reduce(ForkJoinPool pool, int[] array, LongReduceOp op) {
+        return reduce(pool, array, op, defaultThreshold(array.length, pool.getParallelism()));
+    }
+
+    public static long reduce(ForkJoinPool pool, int[] array, LongReduceOp op, int threshold) {
+        checkThreshold(threshold);
+        IntArrayTask task = new IntArrayTask(threshold, array, 0, array.length, op);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    public static long reduce(ForkJoinPool pool, long[] array, LongReduceOp op) {
+        return reduce(pool, array, op, defaultThreshold(array.length, pool.getParallelism()));
+    }
+
+    public static long reduce(ForkJoinPool pool, long[] array, LongReduceOp op, int threshold) {
+        checkThreshold(threshold);
+        LongArrayTask task = new LongArrayTask(threshold, array, 0, array.length, op);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    public static double reduce(ForkJoinPool pool, double[] array, DoubleReduceOp op) {
+        return reduce(pool, array, op, defaultThreshold(array.length, pool.getParallelism()));
+    }
+
+    public static double reduce(ForkJoinPool pool, double[] array, DoubleReduceOp op, int threshold) {
+        checkThreshold(threshold);
+        DoubleArrayTask task = new DoubleArrayTask(threshold, array, 0, array.length, op);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    // Counts values into equal-width bins over [min, max), values out of the range and NaN are ignored
+    public static long[] histogram(ForkJoinPool pool, int[] array, double min, double max, int bins) {
+        HistogramTask task = new IntHistogramTask(defaultThreshold(array.length, pool.getParallelism()), array, 0, array.length, new Bins(min, max, bins));
+        pool.invoke(task);
+        return task.counts;
+    }
+
+    public static long[] histogram(ForkJoinPool pool, long[] array, double min, double max, int bins) {
+        HistogramTask task = new LongHistogramTask(defaultThreshold(array.length, pool.getParallelism()), array, 0, array.length, new Bins(min, max, bins));
+        pool.invoke(task);
+        return task.counts;
+    }
+
+    public static long[] histogram(ForkJoinPool pool, double[] array, double min, double max, int bins) {
+        HistogramTask task = new DoubleHistogramTask(defaultThreshold(array.length, pool.getParallelism()), array, 0, array.length, new Bins(min, max, bins));
+        pool.invoke(task);
+        return task.counts;
+    }
+
+    // A threshold below 1 would split empty and single element ranges forever
+    private static void checkThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be at least 1: " + threshold);
+        }
+    }
+
+    static int defaultThreshold(int length, int parallelism) {
+        return Math.max(MIN_THRESHOLD, length / (parallelism * LEAF_TASKS_PER_WORKER));
+    }
+
+    private abstract static class RangeTask<T extends RangeTask<T>> extends RecursiveAction {
+
+        final int threshold;
+
+        final int startIndex;
+
+        final int endIndex;
+
+        RangeTask(int threshold, int startIndex, int endIndex) {
+            this.threshold = threshold;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+
+        abstract T subTask(int startIndex, int endIndex);
+
+        abstract void computeDirectly();
+
+        abstract void combine(T left, T right);
+
+        @Override
+        protected void compute() {
+            if (endIndex - startIndex <= threshold) { // If task is fairly small, then compute
+                computeDirectly();
+            } else {
+                // Divide task (fork)
+                int mid = (startIndex + endIndex) >>> 1;
+                T leftTask = subTask(startIndex, mid);
+                T rightTask = subTask(mid, endIndex);
+
+                // Run tasks in parallel
+                leftTask.fork();
+                rightTask.compute();
+                leftTask.join();
+
+                // Combine results (join)
+                combine(leftTask, rightTask);
+            }
+        }
+
+    }
+
+    private static final class IntArrayTask extends RangeTask<IntArrayTask> {
+
+        private final int[] array;
+
+        private final LongReduceOp op;
+
+        private long result;
+
+        IntArrayTask(int threshold, int[] array, int startIndex, int endIndex, LongReduceOp op) {
+            super(threshold, startIndex, endIndex);
+            this.array = array;
+            this.op = op;
+        }
+
+        @Override
+        IntArrayTask subTask(int startIndex, int endIndex) {
+            return new IntArrayTask(threshold, array, startIndex, endIndex, op);
+        }
+
+        @Override
+        void computeDirectly() {
+            long accumulator = op.identity();
+            for (int i = startIndex; i < endIndex; i++) {
+                accumulator = op.accumulate(accumulator, array[i]);
+            }
+            result = accumulator;
+        }
+
+        @Override
+        void combine(IntArrayTask left, IntArrayTask right) {
+            result = op.combine(left.result, right.result);
+        }
+
+    }
+
+    private static final class LongArrayTask extends RangeTask<LongArrayTask> {
+
+        private final long[] array;
+
+        private final LongReduceOp op;
+
+        private long result;
+
+        LongArrayTask(int threshold, long[] array, int startIndex, int endIndex, LongReduceOp op) {
+            super(threshold, startIndex, endIndex);
+            this.array = array;
+            this.op = op;
+        }
+
+        @Override
+        LongArrayTask subTask(int startIndex, int endIndex) {
+            return new LongArrayTask(threshold, array, startIndex, endIndex, op);
+        }
+
+        @Override
+        void computeDirectly() {
+            long accumulator = op.identity();
+            for (int i = startIndex; i < endIndex; i++) {
+                accumulator = op.accumulate(accumulator, array[i]);
+            }
+            result = accumulator;
+        }
+
+        @Override
+        void combine(LongArrayTask left, LongArrayTask right) {
+            result = op.combine(left.result, right.result);
+        }
+
+    }
+
+    private static final class DoubleArrayTask extends RangeTask<DoubleArrayTask> {
+
+        private final double[] array;
+
+        private final DoubleReduceOp op;
+
+        private double result;
+
+        DoubleArrayTask(int threshold, double[] array, int startIndex, int endIndex, DoubleReduceOp op) {
+            super(threshold, startIndex, endIndex);
+            this.array = array;
+            this.op = op;
+        }
+
+        @Override
+        DoubleArrayTask subTask(int startIndex, int endIndex) {
+            return new DoubleArrayTask(threshold, array, startIndex, endIndex, op);
+        }
+
+        @Override
+        void computeDirectly() {
+            double accumulator = op.identity();
+            for (int i = startIndex; i < endIndex; i++) {
+                accumulator = op.accumulate(accumulator, array[i]);
+            }
+            result = accumulator;
+        }
+
+        @Override
+        void combine(DoubleArrayTask left, DoubleArrayTask right) {
+            result = op.combine(left.result, right.result);
+        }
+
+    }
+
+    private record Bins(double min, double max, int count) {
+
+        Bins {
+            if (count <= 0 || !(max > min)) {
+                throw new IllegalArgumentException("Invalid histogram range [" + min + ", " + max + ") with " + count + " bins");
+            }
+        }
+
+        // Returns -1 for values out of [min, max), and for NaN which fails every comparison
+        int indexOf(double value) {
+            if (!(value >= min && value < max)) {
+                return -1;
+            }
+            return Math.min(count - 1, (int) ((value - min) / (max - min) * count));
+        }
+
+    }
+
+    private abstract static class HistogramTask extends RangeTask<HistogramTask> {
+
+        final Bins bins;
+
+        long[] counts;
+
+        HistogramTask(int threshold, int startIndex, int endIndex, Bins bins) {
+            super(threshold, startIndex, endIndex);
+            this.bins = bins;
+        }
+
+        void count(double value) {
+            int index = bins.indexOf(value);
+            if (index >= 0) {
+                counts[index]++;
+            }
+        }
+
+        @Override
+        void combine(HistogramTask left, HistogramTask right) {
+            // Reuses the left counts instead of allocating a new array on every level
+            long[] merged = left.counts;
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += right.counts[i];
+            }
+            counts = merged;
+        }
+
+    }
+
+    private static final class IntHistogramTask extends HistogramTask {
+
+        private final int[] array;
+
+        IntHistogramTask(int threshold, int[] array, int startIndex, int endIndex, Bins bins) {
+            super(threshold, startIndex, endIndex, bins);
+            this.array = array;
+        }
+
+        @Override
+        HistogramTask subTask(int startIndex, int endIndex) {
+            return new IntHistogramTask(threshold, array, startIndex, endIndex, bins);
+        }
+
+        @Override
+        void computeDirectly() {
+            counts = new long[bins.count()];
+            for (int i = startIndex; i < endIndex; i++) {
+                count(array[i]);
+            }
+        }
+
+    }
+
+    private static final class LongHistogramTask extends HistogramTask {
+
+        private final long[] array;
+
+        LongHistogramTask(int threshold, long[] array, int startIndex, int endIndex, Bins bins) {
+            super(threshold, startIndex, endIndex, bins);
+            this.array = array;
+        }
+
+        @Override
+        HistogramTask subTask(int startIndex, int endIndex) {
+            return new LongHistogramTask(threshold, array, startIndex, endIndex, bins);
+        }
+
+        @Override
+        void computeDirectly() {
+            counts = new long[bins.count()];
+            for (int i = startIndex; i < endIndex; i++) {
+                count(array[i]);
+            }
+        }
+
+    }
+
+    private static final class DoubleHistogramTask extends HistogramTask {
+
+        private final double[] array;
+
+        DoubleHistogramTask(int threshold, double[] array, int startIndex, int endIndex, Bins bins) {
+            super(threshold, startIndex, endIndex, bins);
+            this.array = array;
+        }
+
+        @Override
+        HistogramTask subTask(int startIndex, int endIndex) {
+            return new DoubleHistogramTask(threshold, array, startIndex, endIndex, bins);
+        }
+
+        @Override
+        void computeDirectly() {
+            counts = new long[bins.count()];
+            for (int i = startIndex; i < endIndex; i++) {
+                count(array[i]);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,58 @@
+package io.github.ufuk.java07.examples;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Compares ForkJoinReduction with parallel streams while scaling the pool from 1 to N workers.
+ * Parallel streams started inside a ForkJoinPool task run on that pool, so both sides get the same number of workers.
+ *
+ * Run with:
+ * java src/test/java/io/github/ufuk/java07/examples/ForkJoinReductionBenchmark.java [array length]
+ */
+public class ForkJoinReductionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        int[] array = ThreadLocalRandom.current().ints(length, 0, 1_000).toArray();
+
+        System.out.printf("%-8s %18s %18s%n", "workers", "fork-join (ms)", "parallel stream (ms)");
+        for (int workers = 1; workers <= Runtime.getRuntime().availableProcessors(); workers++) {
+            try (ForkJoinPool pool = new ForkJoinPool(workers)) {
+                double forkJoinMillis = measure(() -> ForkJoinReduction.reduce(pool, array, LongReduceOp.sum()));
+                double parallelStreamMillis = measure(() -> pool.submit(() -> Arrays.stream(array).parallel().asLongStream().sum()).join());
+
+                System.out.printf("%-8d %18.2f %18.2f%n", workers, forkJoinMillis, parallelStreamMillis);
+            }
+        }
+    }
+
+    private static double measure(LongBenchmark benchmark) {
+        long blackhole = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            blackhole += benchmark.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            blackhole += benchmark.run();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (blackhole == 42) { // keeps JIT from eliminating the results
+            System.out.println();
+        }
+        return elapsed / 1_000_000.0 / MEASURED_ROUNDS;
+    }
+
+    @FunctionalInterface
+    private interface LongBenchmark {
+        long run();
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.github.ufuk.java07.examples;
+
+import java.util.function.LongPredicate;
+
+// Associative reduction over int/long values into a primitive long accumulator
+public interface LongReduceOp {
+
+    long identity();
+
+    long accumulate(long accumulator, long value);
+
+    long combine(long left, long right);
+
+    static LongReduceOp sum() {
+        return new LongReduceOp() {
+            @Override
+            public long identity() {
+                return 0L;
+            }
+
+            @Override
+            public long accumulate(long accumulator, long value) {
+                return accumulator + value;
+            }
+
+            @Override
+            public long combine(long left, long right) {
+                return left + right;
+            }
+        };
+    }
+
+    static LongReduceOp min() {
+        return new LongReduceOp() {
+            @Override
+            public long identity() {
+                return Long.MAX_VALUE;
+            }
+
+            @Override
+            public long accumulate(long accumulator, long value) {
+                return Math.min(accumulator, value);
+            }
+
+            @Override
+            public long combine(long left, long right) {
+                return Math.min(left, right);
+            }
+        };
+    }
+
+    static LongReduceOp max() {
+        return new LongReduceOp() {
+            @Override
+            public long identity() {
+                return Long.MIN_VALUE;
+            }
+
+            @Override
+            public long accumulate(long accumulator, long value) {
+                return Math.max(accumulator, value);
+            }
+
+            @Override
+            public long combine(long left, long right) {
+                return Math.max(left, right);
+            }
+        };
+    }
+
+    static LongReduceOp countIf(LongPredicate predicate) {
+        return new LongReduceOp() {
+            @Override
+            public long identity() {
+                return 0L;
+            }
+
+            @Override
+            public long accumulate(long accumulator, long value) {
+                return predicate.test(value) ? accumulator + 1 : accumulator;
+            }
+
+            @Override
+            public long combine(long left, long right) {
+                return left + right;
+            }
+        };
+    }
+
+}
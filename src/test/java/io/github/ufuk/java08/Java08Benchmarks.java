@@ -0,0 +1,197 @@
+package io.github.ufuk.java08;
+
+import io.github.ufuk.java08.examples.FixedTimestampCodec;
+import io.github.ufuk.java08.examples.NumericTokens;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Before/after pairs of {@link Java08Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java08Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java08Benchmarks {
+
+    // Compiled once, so the timestamp pairs compare formatting and parsing only
+    private static final DateTimeFormatter ISO_LOCAL_DATE_TIME_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"); // like in Java08Tests
+
+    private static final DateTimeFormatter ISO_LOCAL_DATE_TIME_MILLIS_UTC = ISO_LOCAL_DATE_TIME_MILLIS.withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter DAY_MONTH_YEAR_HOUR_MINUTE = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    List<String> tokens;
+
+    byte[] numericCsv;
+
+    long[] epochMillis;
+
+    LocalDateTime[] dateTimes;
+
+    String[] formattedDateTimes;
+
+    byte[] timestampBuffer;
+
+    @Setup
+    public void setUp() {
+        String[] array = new String[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = i % 4 == 3 ? "text" : String.valueOf(i);
+        }
+        tokens = Arrays.asList(array);
+        numericCsv = String.join(",", tokens).getBytes(StandardCharsets.US_ASCII);
+
+        epochMillis = new long[size];
+        dateTimes = new LocalDateTime[size];
+        formattedDateTimes = new String[size];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            epochMillis[i] = now + i * 7_919L;
+            dateTimes[i] = LocalDateTime.ofEpochSecond(epochMillis[i] / 1000, (int) (epochMillis[i] % 1000) * 1_000_000, ZoneOffset.UTC);
+            formattedDateTimes[i] = dateTimes[i].format(DAY_MONTH_YEAR_HOUR_MINUTE);
+        }
+        timestampBuffer = new byte[size * FixedTimestampCodec.ISO_LOCAL_DATE_TIME_MILLIS.length()];
+    }
+
+    @Benchmark
+    public void anonymous_class_before(Blackhole blackhole) {
+        for (String token : tokens) {
+            Function<String, Integer> aConverter = new Function<String, Integer>() {
+                @Override
+                public Integer apply(String aParameter) {
+                    return aParameter.length();
+                }
+            };
+            blackhole.consume(aConverter.apply(token));
+        }
+    }
+
+    @Benchmark
+    public void lambda_expression_after(Blackhole blackhole) {
+        for (String token : tokens) {
+            Function<String, Integer> aConverter = (aParameter) -> aParameter.length();
+            blackhole.consume(aConverter.apply(token));
+        }
+    }
+
+    @Benchmark
+    public List<Long> loop_before() {
+        List<Long> collectedItems = new ArrayList<>();
+        for (String token : tokens) {
+            if (StringUtils.isNumeric(token)) {
+                collectedItems.add(Long.parseLong(token));
+            }
+        }
+        return collectedItems;
+    }
+
+    @Benchmark
+    public List<Long> stream_after() {
+        return tokens.stream()
+                .filter(StringUtils::isNumeric)
+                .map(Long::parseLong)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public long parallel_stream_after() {
+        return tokens.parallelStream()
+                .filter(StringUtils::isNumeric)
+                .count();
+    }
+
+    @Benchmark
+    public long[] parse_numeric_tokens_in_a_single_pass_after() {
+        return NumericTokens.parse(tokens.stream()).toArray();
+    }
+
+    @Benchmark
+    public List<Long> parse_numeric_csv_with_split_before() {
+        return Arrays.stream(new String(numericCsv, StandardCharsets.US_ASCII).split(","))
+                .filter(StringUtils::isNumeric)
+                .map(Long::parseLong)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public long[] parse_numeric_csv_in_place_after() {
+        return NumericTokens.parse(numericCsv, (byte) ',').toArray();
+    }
+
+    // Same input on both sides of each pair: date-times, then epoch millis
+
+    @Benchmark
+    public byte[] format_timestamps_with_date_time_formatter_before() {
+        int offset = 0;
+        for (LocalDateTime dateTime : dateTimes) {
+            byte[] formatted = ISO_LOCAL_DATE_TIME_MILLIS.format(dateTime).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(formatted, 0, timestampBuffer, offset, formatted.length);
+            offset += formatted.length;
+        }
+        return timestampBuffer;
+    }
+
+    @Benchmark
+    public byte[] format_timestamps_with_fixed_codec_after() {
+        int offset = 0;
+        for (LocalDateTime dateTime : dateTimes) {
+            offset = FixedTimestampCodec.ISO_LOCAL_DATE_TIME_MILLIS.format(dateTime, timestampBuffer, offset);
+        }
+        return timestampBuffer;
+    }
+
+    @Benchmark
+    public byte[] format_epoch_millis_with_date_time_formatter_before() {
+        int offset = 0;
+        for (long millis : epochMillis) {
+            byte[] formatted = ISO_LOCAL_DATE_TIME_MILLIS_UTC.format(Instant.ofEpochMilli(millis)).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(formatted, 0, timestampBuffer, offset, formatted.length);
+            offset += formatted.length;
+        }
+        return timestampBuffer;
+    }
+
+    @Benchmark
+    public byte[] format_epoch_millis_with_fixed_codec_after() {
+        int offset = 0;
+        for (long millis : epochMillis) {
+            offset = FixedTimestampCodec.ISO_LOCAL_DATE_TIME_MILLIS.formatEpochMillis(millis, timestampBuffer, offset);
+        }
+        return timestampBuffer;
+    }
+
+    @Benchmark
+    public void parse_timestamps_with_date_time_formatter_before(Blackhole blackhole) {
+        for (String formatted : formattedDateTimes) {
+            blackhole.consume(LocalDateTime.parse(formatted, DAY_MONTH_YEAR_HOUR_MINUTE));
+        }
+    }
+
+    @Benchmark
+    public void parse_timestamps_with_fixed_codec_after(Blackhole blackhole) {
+        for (String formatted : formattedDateTimes) {
+            blackhole.consume(FixedTimestampCodec.DAY_MONTH_YEAR_HOUR_MINUTE.parse(formatted));
+        }
+    }
+
+}
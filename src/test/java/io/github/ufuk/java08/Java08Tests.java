@@ -1,19 +1,27 @@
 package io.github.ufuk.java08;
 
+import io.github.ufuk.budget.CostBudget;
+import io.github.ufuk.java08.examples.FixedTimestampCodec;
 import io.github.ufuk.java08.examples.MyInterface;
 import io.github.ufuk.java08.examples.MyInterfaceImpl;
 import io.github.ufuk.java08.examples.MyOtherInterfaceImpl;
+import io.github.ufuk.java08.examples.NumericTokens;
+import io.github.ufuk.java08.examples.TimestampFormats;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -29,6 +37,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * - https://www.baeldung.com/java-8-lambda-expressions-tips
  * - https://www.baeldung.com/java-8-streams-introduction
  */
+@CostBudget // measures each test, see target/cost-budget/io.github.ufuk.java08.Java08Tests.txt
 class Java08Tests {
 
     @Test
@@ -204,6 +213,54 @@ class Java08Tests {
         // ...
     }
 
+    @Test
+    void parse_numeric_tokens_in_a_single_pass_without_boxing() {
+        // each token is scanned once, values stay primitive
+        long[] parsedItems = NumericTokens.parse(Stream.of("1", "2", "3", "text")).toArray();
+        assertThat(parsedItems).containsExactly(1, 2, 3);
+
+        // tokens are kept if and only if Long.parseLong accepts them
+        List<String> edgeCases = Arrays.asList("", "-", "+", "-5", "+7", "007", "1.5", " 1", "9223372036854775807", "9223372036854775808",
+                "-9223372036854775808", "-9223372036854775809", "99999999999999999999", "١٢٣");
+        long[] expectedItems = edgeCases.stream()
+                .filter(token -> {
+                    try {
+                        Long.parseLong(token);
+                        return true;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                })
+                .mapToLong(Long::parseLong)
+                .toArray();
+        assertThat(edgeCases.stream().collect(NumericTokens.toLongArray())).containsExactly(expectedItems);
+        assertThat(expectedItems).containsExactly(-5, 7, 7, Long.MAX_VALUE, Long.MIN_VALUE, 123);
+
+        // numeric CSV column parsed straight from the bytes, line breaks separate tokens too
+        byte[] csv = "10,-20,text\r\n30,,+40\n".getBytes(StandardCharsets.US_ASCII);
+        assertThat(NumericTokens.parse(csv, (byte) ',').toArray()).containsExactly(10, -20, 30, 40);
+        assertThat(NumericTokens.parse(csv, 3, 10, (byte) ',').sum()).isEqualTo(-20);
+
+        // the estimate never gets negative, also after a last token without a delimiter
+        Spliterator.OfLong tokens = NumericTokens.parse("1,2".getBytes(StandardCharsets.US_ASCII), (byte) ',').spliterator();
+        while (tokens.tryAdvance((long token) -> {
+        })) {
+            assertThat(tokens.estimateSize()).isNotNegative();
+        }
+        assertThat(tokens.estimateSize()).isZero();
+
+        // large buffers are split at token boundaries when parallel
+        StringBuilder column = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            column.append(i % 10 == 9 ? "n/a" : String.valueOf(i * 31L - 1_000_000)).append(i % 5 == 4 ? '\n' : ';');
+        }
+        byte[] largeBuffer = column.toString().getBytes(StandardCharsets.US_ASCII);
+        long[] sequential = NumericTokens.parse(largeBuffer, (byte) ';').toArray();
+        long[] parallel = NumericTokens.parse(largeBuffer, (byte) ';').parallel().toArray();
+        assertThat(parallel).hasSize(180_000).isEqualTo(sequential);
+        assertThat(NumericTokens.parse(Arrays.stream(column.toString().split("[;\n]")).parallel()).toArray()).isEqualTo(sequential);
+    }
+
     @Test
     void new_utilities_for_null_checks() {
         Long aLong = null;
@@ -362,4 +419,54 @@ class Java08Tests {
         System.out.println("Parsed date: " + dateTime);
     }
 
+    @Test
+    void format_and_parse_timestamps_without_allocation_on_hot_paths() {
+        // Compiled once, then reused
+        DateTimeFormatter formatter = TimestampFormats.formatter("dd-MM-yyyy HH:mm");
+        assertThat(TimestampFormats.formatter("dd-MM-yyyy HH:mm")).isSameAs(formatter);
+
+        // Specialized codec writes digits directly into a byte[]
+        FixedTimestampCodec codec = TimestampFormats.codec("dd-MM-yyyy HH:mm").orElseThrow();
+        byte[] buffer = new byte[codec.length()];
+
+        LocalDateTime dateTime = LocalDateTime.of(2024, 12, 21, 17, 47);
+        codec.format(dateTime, buffer, 0);
+        assertThat(new String(buffer, StandardCharsets.US_ASCII)).isEqualTo(dateTime.format(formatter)).isEqualTo("21-12-2024 17:47");
+        assertThat(codec.parse(buffer, 0)).isEqualTo(LocalDateTime.parse("21-12-2024 17:47", formatter));
+        assertThrows(
+                DateTimeParseException.class,
+                () -> {
+                    codec.parse(buffer, 1); // throws exception, one byte short
+                }
+        );
+
+        // Direct buffers, as used for I/O, are written in place too
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(codec.length() + 1).put((byte) '[');
+        codec.format(dateTime, directBuffer);
+        assertThat(StandardCharsets.US_ASCII.decode(directBuffer.flip()).toString()).isEqualTo("[21-12-2024 17:47");
+
+        // Event timestamps can be formatted straight from epoch millis
+        FixedTimestampCodec isoCodec = FixedTimestampCodec.ISO_LOCAL_DATE_TIME_MILLIS;
+        byte[] isoBuffer = new byte[isoCodec.length()];
+        long epochMillis = Instant.parse("2024-02-29T23:59:58.007Z").toEpochMilli();
+        isoCodec.formatEpochMillis(epochMillis, isoBuffer, 0);
+        assertThat(new String(isoBuffer, StandardCharsets.US_ASCII))
+                .isEqualTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC).format(TimestampFormats.formatter(isoCodec.pattern())))
+                .isEqualTo("2024-02-29T23:59:58.007");
+        assertThat(isoCodec.parse("2024-02-29T23:59:58.007")).isEqualTo(LocalDateTime.of(2024, 2, 29, 23, 59, 58, 7_000_000));
+    }
+
+    @Test
+    @CostBudget(maxAllocatedBytes = 256 * 1024) // room for loading classes when run alone, a single object per iteration would need 1.6 MB
+    void lock_in_allocation_free_hot_paths_with_a_cost_budget() {
+        // output is checked by the test above, this one only fails if the hot path starts allocating
+        // (no assertion here, as loading the assertion classes on first use would allocate more than the loop)
+        FixedTimestampCodec isoCodec = FixedTimestampCodec.ISO_LOCAL_DATE_TIME_MILLIS;
+        byte[] isoBuffer = new byte[isoCodec.length()];
+        long epochMillis = 1_709_251_198_007L; // 2024-02-29T23:59:58.007Z
+        for (int i = 0; i < 100_000; i++) {
+            isoCodec.formatEpochMillis(epochMillis + i * 7_919L, isoBuffer, 0);
+        }
+    }
+
 }
@@ -0,0 +1,221 @@
+package io.github.ufuk.java08.examples;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
+/*
+ * Formats and parses fixed-width timestamp layouts digit by digit, directly from/into ASCII bytes:
+ * no String, no DateTimeFormatter, no intermediate TemporalAccessor.
+ * Output is the same as DateTimeFormatter.ofPattern(pattern()) for years 0001-9999 (yyyy is year of era).
+ */
+public enum FixedTimestampCodec {
+
+    // 21-12-2024 17:47
+    DAY_MONTH_YEAR_HOUR_MINUTE("dd-MM-yyyy HH:mm", 16) {
+        @Override
+        int write(byte[] dst, ByteBuffer buffer, int offset, int year, int month, int day, int hour, int minute, int second, int millis) {
+            offset = writeDigits(dst, buffer, offset, day, 2);
+            put(dst, buffer, offset++, '-');
+            offset = writeDigits(dst, buffer, offset, month, 2);
+            put(dst, buffer, offset++, '-');
+            offset = writeDigits(dst, buffer, offset, year, 4);
+            put(dst, buffer, offset++, ' ');
+            offset = writeDigits(dst, buffer, offset, hour, 2);
+            put(dst, buffer, offset++, ':');
+            return writeDigits(dst, buffer, offset, minute, 2);
+        }
+
+        @Override
+        LocalDateTime read(Source src, int offset) {
+            src.expect(offset + 2, '-');
+            src.expect(offset + 5, '-');
+            src.expect(offset + 10, ' ');
+            src.expect(offset + 13, ':');
+            return LocalDateTime.of(src.digits(offset + 6, 4), src.digits(offset + 3, 2), src.digits(offset, 2),
+                    src.digits(offset + 11, 2), src.digits(offset + 14, 2));
+        }
+    },
+
+    // 2024-12-21T17:47:03.042
+    ISO_LOCAL_DATE_TIME_MILLIS("yyyy-MM-dd'T'HH:mm:ss.SSS", 23) {
+        @Override
+        int write(byte[] dst, ByteBuffer buffer, int offset, int year, int month, int day, int hour, int minute, int second, int millis) {
+            offset = writeDigits(dst, buffer, offset, year, 4);
+            put(dst, buffer, offset++, '-');
+            offset = writeDigits(dst, buffer, offset, month, 2);
+            put(dst, buffer, offset++, '-');
+            offset = writeDigits(dst, buffer, offset, day, 2);
+            put(dst, buffer, offset++, 'T');
+            offset = writeDigits(dst, buffer, offset, hour, 2);
+            put(dst, buffer, offset++, ':');
+            offset = writeDigits(dst, buffer, offset, minute, 2);
+            put(dst, buffer, offset++, ':');
+            offset = writeDigits(dst, buffer, offset, second, 2);
+            put(dst, buffer, offset++, '.');
+            return writeDigits(dst, buffer, offset, millis, 3);
+        }
+
+        @Override
+        LocalDateTime read(Source src, int offset) {
+            src.expect(offset + 4, '-');
+            src.expect(offset + 7, '-');
+            src.expect(offset + 10, 'T');
+            src.expect(offset + 13, ':');
+            src.expect(offset + 16, ':');
+            src.expect(offset + 19, '.');
+            return LocalDateTime.of(src.digits(offset, 4), src.digits(offset + 5, 2), src.digits(offset + 8, 2),
+                    src.digits(offset + 11, 2), src.digits(offset + 14, 2), src.digits(offset + 17, 2),
+                    src.digits(offset + 20, 3) * 1_000_000);
+        }
+    };
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final String pattern;
+
+    private final int length;
+
+    FixedTimestampCodec(String pattern, int length) {
+        this.pattern = pattern;
+        this.length = length;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // Returns the offset after the written bytes
+    public int format(LocalDateTime dateTime, byte[] dst, int offset) {
+        return format(dateTime, dst, null, offset);
+    }
+
+    // Either dst or buffer is null, a wrapper object would escape through the abstract write
+    private int format(LocalDateTime dateTime, byte[] dst, ByteBuffer buffer, int offset) {
+        checkYear(dateTime.getYear());
+        return write(dst, buffer, offset, dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(),
+                dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond(), dateTime.getNano() / 1_000_000);
+    }
+
+    // Formats epoch millis as UTC, without creating any date/time object
+    public int formatEpochMillis(long epochMillis, byte[] dst, int offset) {
+        long epochDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        // Civil date from days, see https://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        checkYear(year);
+        return write(dst, null, offset, year, month, day,
+                millisOfDay / 3_600_000, millisOfDay / 60_000 % 60, millisOfDay / 1_000 % 60, millisOfDay % 1_000);
+    }
+
+    // Writes at the position of the buffer and advances it, heap buffers through their array, direct ones by absolute puts
+    public void format(LocalDateTime dateTime, ByteBuffer dst) {
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            int end = format(dateTime, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(end - dst.arrayOffset());
+        } else {
+            dst.position(format(dateTime, null, dst, dst.position()));
+        }
+    }
+
+    public LocalDateTime parse(byte[] src, int offset) {
+        Objects.checkFromIndexSize(offset, 0, src.length);
+        if (src.length - offset < length) {
+            throw new DateTimeParseException("Text must be " + length + " characters long for pattern " + pattern,
+                    new String(src, offset, src.length - offset, StandardCharsets.ISO_8859_1), src.length - offset);
+        }
+        return checkYear(read(new Source(src, null, offset, length), offset));
+    }
+
+    public LocalDateTime parse(CharSequence src) {
+        if (src.length() != length) {
+            throw new DateTimeParseException("Text must be " + length + " characters long for pattern " + pattern, src, 0);
+        }
+        return checkYear(read(new Source(null, src, 0, length), 0));
+    }
+
+    abstract int write(byte[] dst, ByteBuffer buffer, int offset, int year, int month, int day, int hour, int minute, int second, int millis);
+
+    abstract LocalDateTime read(Source src, int offset);
+
+    private static int writeDigits(byte[] dst, ByteBuffer buffer, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            put(dst, buffer, i, (char) ('0' + value % 10));
+            value /= 10;
+        }
+        return offset + width;
+    }
+
+    // Absolute puts on buffers, so direct ones are written in place without a scratch array
+    private static void put(byte[] dst, ByteBuffer buffer, int index, char c) {
+        if (dst != null) {
+            dst[index] = (byte) c;
+        } else {
+            buffer.put(index, (byte) c);
+        }
+    }
+
+    private LocalDateTime checkYear(LocalDateTime dateTime) {
+        checkYear(dateTime.getYear());
+        return dateTime;
+    }
+
+    private void checkYear(int year) {
+        if (year < 1 || year > 9999) {
+            throw new IllegalArgumentException("Year out of range 0001-9999 for pattern " + pattern + ": " + year);
+        }
+    }
+
+    // Reads either bytes or characters, escape analysis removes this wrapper in hot loops
+    record Source(byte[] bytes, CharSequence chars, int offset, int length) {
+
+        int charAt(int index) {
+            return bytes != null ? bytes[index] : chars.charAt(index);
+        }
+
+        int digits(int index, int width) {
+            int value = 0;
+            for (int i = index; i < index + width; i++) {
+                int digit = charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw error("Digit expected", i);
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        void expect(int index, char expected) {
+            if (charAt(index) != expected) {
+                throw error("'" + expected + "' expected", index);
+            }
+        }
+
+        private DateTimeParseException error(String message, int index) {
+            CharSequence text = bytes != null ? new String(bytes, offset, Math.min(length, bytes.length - offset), StandardCharsets.ISO_8859_1) : chars;
+            return new DateTimeParseException(message + " at index " + (index - offset), text, index - offset);
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+package io.github.ufuk.java08.examples;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.Collector;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Parse-or-skip numeric tokens into a LongStream in a single pass:
+ * - a token is kept only if Long.parseLong would accept it, so signs are allowed but overflowing values are skipped
+ *   (no exception is thrown, no token is scanned twice as with filter(StringUtils::isNumeric).map(Long::parseLong))
+ * - values are never boxed, collect them with LongStream.toArray or toLongArray()
+ * - delimited byte buffers, e.g. numeric CSV columns, are parsed in place, line breaks also separate tokens there,
+ *   and parallel streams split them at token boundaries
+ */
+public final class NumericTokens {
+
+    private static final int MIN_SPLIT_SIZE = 64 * 1024;
+
+    private NumericTokens() {
+    }
+
+    public static LongStream parse(Stream<? extends CharSequence> tokens) {
+        return tokens.mapMultiToLong(NumericTokens::parseToken);
+    }
+
+    public static LongStream parse(byte[] buffer, byte delimiter) {
+        return parse(buffer, 0, buffer.length, delimiter);
+    }
+
+    // Tokens of US-ASCII (or UTF-8) bytes in [from, to), only ASCII digits are accepted in them
+    public static LongStream parse(byte[] buffer, int from, int to, byte delimiter) {
+        if (from < 0 || to > buffer.length || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is out of buffer of length " + buffer.length);
+        }
+        return StreamSupport.longStream(new TokenSpliterator(buffer, from, to, delimiter), false);
+    }
+
+    // Same as parse(tokens).toArray() but as a collector, e.g. for a downstream of groupingBy
+    public static Collector<CharSequence, ?, long[]> toLongArray() {
+        return Collector.of(LongArrayBuilder::new, (builder, token) -> parseToken(token, builder), LongArrayBuilder::addAll, LongArrayBuilder::toArray);
+    }
+
+    // Same algorithm as Long.parseLong: accumulates negatively, as the negative range is larger
+    private static void parseToken(CharSequence token, LongConsumer sink) {
+        int length = token.length();
+        if (length == 0) {
+            return;
+        }
+
+        int i = 0;
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+        char first = token.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) {
+                return;
+            }
+            if (first == '-') {
+                negative = true;
+                limit = Long.MIN_VALUE;
+            }
+            i++;
+        }
+
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = Character.digit(token.charAt(i), 10); // like Long.parseLong, non-ASCII digits are accepted too
+            if (digit < 0 || result < multiplicationLimit) {
+                return;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return;
+            }
+            result -= digit;
+        }
+        sink.accept(negative ? result : -result);
+    }
+
+    private static final class TokenSpliterator implements Spliterator.OfLong {
+
+        private final byte[] buffer;
+
+        private final byte delimiter;
+
+        private int position;
+
+        private final int end;
+
+        private TokenSpliterator(byte[] buffer, int from, int to, byte delimiter) {
+            this.buffer = buffer;
+            this.position = from;
+            this.end = to;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            while (position < end) {
+                int tokenEnd = tokenEnd(position);
+                boolean parsed = parseToken(position, tokenEnd, action);
+                position = Math.min(tokenEnd + 1, end); // the last token may have no delimiter after it
+                if (parsed) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            int start = position;
+            while (start < end) {
+                int tokenEnd = tokenEnd(start);
+                parseToken(start, tokenEnd, action);
+                start = tokenEnd + 1;
+            }
+            position = end;
+        }
+
+        // Splits at the first token boundary after the middle, the prefix is handed to another thread
+        @Override
+        public Spliterator.OfLong trySplit() {
+            if (end - position < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            int boundary = tokenEnd(position + (end - position) / 2);
+            if (boundary >= end) {
+                return null;
+            }
+            TokenSpliterator prefix = new TokenSpliterator(buffer, position, boundary, delimiter);
+            position = boundary + 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position; // tokens are at least 1 byte long
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        private int tokenEnd(int start) {
+            int i = start;
+            while (i < end && !isBoundary(buffer[i])) {
+                i++;
+            }
+            return i;
+        }
+
+        private boolean isBoundary(byte b) {
+            return b == delimiter || b == '\n' || b == '\r';
+        }
+
+        // Same as parseToken(CharSequence, LongConsumer) for ASCII digits
+        private boolean parseToken(int start, int tokenEnd, LongConsumer action) {
+            if (start == tokenEnd) {
+                return false;
+            }
+
+            int i = start;
+            boolean negative = false;
+            long limit = -Long.MAX_VALUE;
+            byte first = buffer[start];
+            if (first == '-' || first == '+') {
+                if (tokenEnd - start == 1) {
+                    return false;
+                }
+                if (first == '-') {
+                    negative = true;
+                    limit = Long.MIN_VALUE;
+                }
+                i++;
+            }
+
+            long multiplicationLimit = limit / 10;
+            long result = 0;
+            for (; i < tokenEnd; i++) {
+                int digit = buffer[i] - '0';
+                if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+                    return false;
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    return false;
+                }
+                result -= digit;
+            }
+            action.accept(negative ? result : -result);
+            return true;
+        }
+
+    }
+
+    private static final class LongArrayBuilder implements LongConsumer {
+
+        private long[] values = new long[16];
+
+        private int size;
+
+        @Override
+        public void accept(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private LongArrayBuilder addAll(LongArrayBuilder other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package io.github.ufuk.java08.examples;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * DateTimeFormatter is immutable and thread-safe, but compiling a pattern isn't cheap.
+ * Patterns are compiled once here, then shared by all threads.
+ */
+public final class TimestampFormats {
+
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private TimestampFormats() {
+    }
+
+    public static DateTimeFormatter formatter(String pattern) {
+        return FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    // Specialized codec of the pattern if there is one, which is faster than the formatter
+    public static Optional<FixedTimestampCodec> codec(String pattern) {
+        for (FixedTimestampCodec codec : FixedTimestampCodec.values()) {
+            if (codec.pattern().equals(pattern)) {
+                return Optional.of(codec);
+            }
+        }
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.ufuk.java09;
+
+import io.github.ufuk.java09.examples.BatchingIntSubscriber;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Items per millisecond through {@link SubmissionPublisher}, requesting items one by one (like in {@link Java09Tests})
+ * versus in batches.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java09Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java09Benchmarks {
+
+    private static final int ITEMS = 100_000;
+
+    @Param({"64", "256"})
+    int window;
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long request_one_by_one_before() throws InterruptedException {
+        OneByOneSubscriber subscriber = new OneByOneSubscriber();
+        publish(subscriber);
+        subscriber.completed.await();
+        return subscriber.sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long request_in_batches_after() throws InterruptedException {
+        long[] sum = new long[1];
+        BatchingIntSubscriber subscriber = new BatchingIntSubscriber(window, (items, length) -> {
+            for (int i = 0; i < length; i++) {
+                sum[0] += items[i];
+            }
+        });
+        publish(subscriber);
+        subscriber.awaitTermination(1, TimeUnit.MINUTES);
+        return sum[0];
+    }
+
+    private void publish(Flow.Subscriber<Integer> subscriber) {
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(subscriber);
+            for (int i = 0; i < ITEMS; i++) {
+                publisher.submit(i);
+            }
+        }
+    }
+
+    // Same as IntegerSubscriber, without printing which would dominate the measurement
+    static class OneByOneSubscriber implements Flow.Subscriber<Integer> {
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        Flow.Subscription subscription;
+
+        long sum;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            sum += item;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+    }
+
+}
@@ -1,19 +1,31 @@
 package io.github.ufuk.java09;
 
+import io.github.ufuk.java09.examples.BatchingIntSubscriber;
 import io.github.ufuk.java09.examples.IntegerSubscriber;
 import io.github.ufuk.java09.examples.MyInterface;
 import io.github.ufuk.java09.examples.MyInterfaceImpl;
+import io.github.ufuk.java09.examples.RingBufferPublisher;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Flow;
 import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -110,4 +122,143 @@ class Java09Tests {
         publisher.close();
     }
 
+    @Test
+    void publish_subscribe_framework_with_batched_demand() throws Exception {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>();
+
+        // Requests 256 items at once, tops up when 64 left, receives items in batches of 128
+        AtomicLong sum = new AtomicLong();
+        BatchingIntSubscriber subscriber = new BatchingIntSubscriber(256, (items, length) -> {
+            long batchSum = 0;
+            for (int i = 0; i < length; i++) {
+                batchSum += items[i];
+            }
+            sum.addAndGet(batchSum);
+        });
+
+        publisher.subscribe(subscriber);
+
+        for (int number = 1; number <= 10_000; number++) {
+            publisher.submit(number);
+        }
+
+        publisher.close();
+
+        assertThat(subscriber.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error()).isNull();
+        assertThat(sum.get()).isEqualTo(50_005_000L);
+    }
+
+    @Test
+    void publish_subscribe_framework_with_batched_demand_when_the_publisher_pauses() throws Exception {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>();
+
+        // Requests 8 items at once, tops up when 2 left, receives items in batches of 4
+        CountDownLatch received = new CountDownLatch(6);
+        BatchingIntSubscriber subscriber = new BatchingIntSubscriber(8, (items, length) -> {
+            for (int i = 0; i < length; i++) {
+                received.countDown();
+            }
+        });
+
+        publisher.subscribe(subscriber);
+
+        // A full batch and a partial one, the partial one is handed over with the top-up, not held until completion
+        for (int number = 1; number <= 6; number++) {
+            publisher.submit(number);
+        }
+
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.awaitTermination(0, TimeUnit.SECONDS)).isFalse();
+
+        publisher.close();
+
+        assertThat(subscriber.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void publish_subscribe_framework_with_a_single_ring_buffer_for_all_subscribers() throws Exception {
+        // Creates a publisher, which writes each item once and lets subscribers read it with their own cursors
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(16, RingBufferPublisher.WaitStrategy.PARK, RingBufferPublisher.OverflowPolicy.BLOCK);
+
+        // Same subscribers work for both publishers
+        publisher.subscribe(new IntegerSubscriber());
+        publisher.subscribe(new IntegerSubscriber());
+
+        AtomicLong sum = new AtomicLong();
+        BatchingIntSubscriber subscriber = new BatchingIntSubscriber(8, (items, length) -> {
+            for (int i = 0; i < length; i++) {
+                sum.addAndGet(items[i]);
+            }
+        });
+        publisher.subscribe(subscriber);
+
+        // Nothing is dropped, even if the ring is smaller than the count of items
+        for (int number = 1; number <= 100; number++) {
+            publisher.submit(number);
+        }
+
+        publisher.close();
+
+        assertThat(subscriber.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(sum.get()).isEqualTo(5050);
+    }
+
+
+    @ParameterizedTest
+    @MethodSource("provideRingBufferPolicies")
+    void publish_subscribe_framework_with_a_ring_buffer_and_subscribers_joining_late(RingBufferPublisher.WaitStrategy waitStrategy,
+                                                                                    RingBufferPublisher.OverflowPolicy overflowPolicy) throws Exception {
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(16, waitStrategy, overflowPolicy);
+        AtomicInteger earlyCount = new AtomicInteger();
+        List<Integer> earlyItems = new ArrayList<>();
+        BatchingIntSubscriber earlySubscriber = new BatchingIntSubscriber(8, (items, length) -> {
+            for (int i = 0; i < length; i++) {
+                earlyItems.add(items[i]);
+            }
+            earlyCount.addAndGet(length);
+        });
+        publisher.subscribe(earlySubscriber);
+
+        Thread submitter = Thread.ofPlatform().start(() -> {
+            for (int number = 1; number <= 10_000; number++) {
+                publisher.submit(number);
+            }
+        });
+
+        // Joins while items are submitted, it starts at a recent item, never at a slot overwritten in the meantime
+        while (earlyCount.get() < 100 && submitter.isAlive()) {
+            Thread.onSpinWait();
+        }
+        List<Integer> lateItems = new ArrayList<>();
+        BatchingIntSubscriber lateSubscriber = new BatchingIntSubscriber(8, (items, length) -> {
+            for (int i = 0; i < length; i++) {
+                lateItems.add(items[i]);
+            }
+        });
+        publisher.subscribe(lateSubscriber);
+
+        submitter.join();
+        publisher.submit(10_001); // the last item reaches every subscriber, whatever the policy
+        publisher.close();
+
+        assertThat(earlySubscriber.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(lateSubscriber.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        for (List<Integer> items : List.of(earlyItems, lateItems)) {
+            assertThat(items).isSorted().doesNotHaveDuplicates().endsWith(10_001);
+            if (overflowPolicy == RingBufferPublisher.OverflowPolicy.BLOCK) { // no gaps
+                assertThat(items.getLast() - items.getFirst() + 1).isEqualTo(items.size());
+            }
+        }
+        if (overflowPolicy == RingBufferPublisher.OverflowPolicy.BLOCK) {
+            assertThat(earlyItems).hasSize(10_001);
+        }
+    }
+
+    static Stream<Arguments> provideRingBufferPolicies() {
+        return Arrays.stream(RingBufferPublisher.WaitStrategy.values())
+                .flatMap(waitStrategy -> Arrays.stream(RingBufferPublisher.OverflowPolicy.values())
+                        .map(overflowPolicy -> Arguments.of(waitStrategy, overflowPolicy)));
+    }
+
 }
@@ -0,0 +1,108 @@
+package io.github.ufuk.java09.examples;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Unlike IntegerSubscriber, which requests items one by one:
+ * - requests a window of items at once, then tops the demand up when it drops to the low-water mark
+ * - collects items into an int[] and hands them to the consumer in batches
+ * - a partial batch is handed over when the demand is topped up, and on termination; so if the publisher pauses
+ *   without completing, only the items received since the last top-up (less than window - lowWaterMark) wait for
+ *   the next item
+ */
+public class BatchingIntSubscriber implements Flow.Subscriber<Integer> {
+
+    private final int window;
+
+    private final int lowWaterMark;
+
+    private final IntBatchConsumer consumer;
+
+    private final int[] batch;
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private Flow.Subscription subscription;
+
+    private int batchLength;
+
+    private long outstandingDemand;
+
+    private volatile Throwable error;
+
+    public BatchingIntSubscriber(int window, IntBatchConsumer consumer) {
+        this(window, window / 4, window / 2, consumer);
+    }
+
+    public BatchingIntSubscriber(int window, int lowWaterMark, int batchSize, IntBatchConsumer consumer) {
+        if (window <= 0 || lowWaterMark < 0 || lowWaterMark >= window || batchSize <= 0) {
+            throw new IllegalArgumentException("Window must be positive, low-water mark must be less than window, batch size must be positive");
+        }
+        this.window = window;
+        this.lowWaterMark = lowWaterMark;
+        this.consumer = consumer;
+        this.batch = new int[batchSize];
+    }
+
+    // Signals are never concurrent for a subscription (Reactive Streams rule 1.3), so no synchronization is needed
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        outstandingDemand = window;
+        subscription.request(window);
+    }
+
+    @Override
+    public void onNext(Integer item) {
+        batch[batchLength++] = item;
+        if (batchLength == batch.length) {
+            flush();
+        }
+
+        if (--outstandingDemand <= lowWaterMark) {
+            flush(); // else a publisher pausing after this many items would leave them in the batch
+            subscription.request(window - outstandingDemand);
+            outstandingDemand = window;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        flush();
+        error = throwable;
+        terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+        flush();
+        terminated.countDown();
+    }
+
+    // Returns false if not terminated within the timeout
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    public Throwable error() {
+        return error;
+    }
+
+    private void flush() {
+        if (batchLength > 0) {
+            consumer.accept(batch, batchLength);
+            batchLength = 0;
+        }
+    }
+
+    @FunctionalInterface
+    public interface IntBatchConsumer {
+
+        // The array is reused for the next batch, only the first "length" items belong to this batch
+        void accept(int[] items, int length);
+
+    }
+
+}
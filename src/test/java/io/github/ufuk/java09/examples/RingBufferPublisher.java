@@ -0,0 +1,229 @@
+package io.github.ufuk.java09.examples;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * An alternative to SubmissionPublisher, which gives each subscriber its own buffer:
+ * - items are written once into a single pre-allocated ring buffer
+ * - each subscriber reads the same buffer through its own sequence (cursor), on its own delivery thread
+ * - no locks on both sides, threads wait according to the WaitStrategy
+ * Items must be submitted from a single thread at a time.
+ */
+public class RingBufferPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+
+    private static final AtomicInteger SUBSCRIBER_COUNTER = new AtomicInteger();
+
+    private final AtomicReferenceArray<T> ring;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final WaitStrategy waitStrategy;
+
+    private final OverflowPolicy overflowPolicy;
+
+    // Count of items written into the ring, i.e. the sequence of the next item
+    private final AtomicLong published = new AtomicLong();
+
+    private final List<RingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed;
+
+    public RingBufferPublisher(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        // Registered before its start sequence is read, so a concurrent submit either sees the subscription and waits
+        // for it, or has published the item before; the first read only holds the publisher back until then
+        RingSubscription subscription = new RingSubscription(subscriber, published.get());
+        subscriptions.add(subscription);
+        subscription.sequence = published.get();
+        Thread.ofPlatform()
+                .daemon()
+                .name("ring-buffer-subscriber-" + SUBSCRIBER_COUNTER.incrementAndGet())
+                .start(subscription::deliver);
+    }
+
+    public void submit(T item) {
+        if (item == null) {
+            throw new NullPointerException("Item must not be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+
+        long sequence = published.get();
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            // Waits until the slowest subscriber has read the item which is going to be overwritten
+            for (int idleCount = 0; sequence - minimumSubscriberSequence(sequence) >= capacity; idleCount++) {
+                waitStrategy.idle(idleCount);
+            }
+        }
+
+        // Slot is written before the sequence is published, readers check the sequence again after reading the slot
+        ring.set((int) sequence & mask, item);
+        published.set(sequence + 1);
+    }
+
+    public int getNumberOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    // Subscribers receive onComplete after they have read the remaining items
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private long minimumSubscriberSequence(long defaultSequence) {
+        long minimum = defaultSequence;
+        for (RingSubscription subscription : subscriptions) {
+            minimum = Math.min(minimum, subscription.sequence);
+        }
+        return minimum;
+    }
+
+    public enum WaitStrategy {
+
+        SPIN {
+            @Override
+            void idle(int idleCount) {
+                Thread.onSpinWait();
+            }
+        },
+
+        YIELD {
+            @Override
+            void idle(int idleCount) {
+                Thread.yield();
+            }
+        },
+
+        PARK {
+            @Override
+            void idle(int idleCount) {
+                if (idleCount < 100) { // short spin, items usually arrive soon under load
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+        };
+
+        abstract void idle(int idleCount);
+
+    }
+
+    public enum OverflowPolicy {
+
+        // Publisher waits for the slowest subscriber, so no item is lost
+        BLOCK,
+
+        // Publisher overwrites the oldest items, subscribers falling behind skip them
+        DROP_OLDEST,
+
+        // Subscribers always jump to the most recent item, skipping the ones in between
+        LATEST
+
+    }
+
+    private final class RingSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        // Sequence of the next item to read, the publisher reads it when the policy is BLOCK
+        private volatile long sequence;
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable pendingError;
+
+        RingSubscription(Flow.Subscriber<? super T> subscriber, long sequence) {
+            this.subscriber = subscriber;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                pendingError = new IllegalArgumentException("Requested items must be positive (Reactive Streams rule 3.9): " + n);
+                return;
+            }
+            requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void deliver() {
+            try {
+                subscriber.onSubscribe(this);
+
+                long next = sequence;
+                int idleCount = 0;
+                while (!cancelled) {
+                    if (pendingError != null) {
+                        cancel();
+                        subscriber.onError(pendingError);
+                        return;
+                    }
+
+                    boolean isClosed = closed; // read before the sequence, so no item published before closing is missed
+                    long available = published.get();
+                    if (next < available && requested.get() > 0) {
+                        if (overflowPolicy == OverflowPolicy.LATEST) {
+                            next = available - 1;
+                        }
+
+                        T item = ring.get((int) next & mask);
+                        if (overflowPolicy != OverflowPolicy.BLOCK) {
+                            long current = published.get();
+                            if (current - next >= capacity) { // the slot may be overwritten while reading
+                                next = current - capacity + 1;
+                                sequence = next;
+                                continue;
+                            }
+                        }
+
+                        sequence = ++next;
+                        requested.decrementAndGet();
+                        subscriber.onNext(item);
+                        idleCount = 0;
+                    } else if (isClosed && next >= available) {
+                        cancel();
+                        subscriber.onComplete();
+                        return;
+                    } else {
+                        waitStrategy.idle(idleCount++);
+                    }
+                }
+            } catch (Throwable throwable) {
+                cancel();
+                subscriber.onError(throwable);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package io.github.ufuk.java10;
+
+import io.github.ufuk.java10.examples.PerfectHashMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after pairs of {@link Java10Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java10Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java10Benchmarks {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    Map<String, String> routes;
+
+    Map<String, String> copyOfRoutes;
+
+    Map<String, String> perfectHashRoutes;
+
+    String[] lookups;
+
+    @Setup
+    public void setUp() {
+        routes = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            routes.put("/api/v1/resource-" + i, "handler-" + i);
+        }
+        copyOfRoutes = Map.copyOf(routes);
+        perfectHashRoutes = PerfectHashMap.copyOf(routes);
+
+        // One in four lookups misses, in random order, copies of the keys so that equals compares the characters
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            keys.add(new String(i % 4 == 3 ? "/api/v2/resource-" + i : "/api/v1/resource-" + i));
+        }
+        Collections.shuffle(keys, new Random(10));
+        lookups = keys.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void lookup_in_map_copy_of_before(Blackhole blackhole) {
+        for (String lookup : lookups) {
+            blackhole.consume(copyOfRoutes.get(lookup));
+        }
+    }
+
+    @Benchmark
+    public void lookup_in_perfect_hash_map_after(Blackhole blackhole) {
+        for (String lookup : lookups) {
+            blackhole.consume(perfectHashRoutes.get(lookup));
+        }
+    }
+
+    // Cost of building the copies; gc.alloc.rate.norm of these counts the building garbage too, so it is not the
+    // footprint, see measure_retained_size_of_perfect_hash_maps in Java10Tests for the retained sizes
+
+    @Benchmark
+    public Map<String, String> copy_with_map_copy_of_before() {
+        return Map.copyOf(routes);
+    }
+
+    @Benchmark
+    public Map<String, String> copy_with_perfect_hash_map_after() {
+        return PerfectHashMap.copyOf(routes);
+    }
+
+}
@@ -1,11 +1,17 @@
 package io.github.ufuk.java10;
 
+import io.github.ufuk.java10.examples.PerfectHashMap;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -46,6 +52,83 @@ class Java10Tests {
         );
     }
 
+    @Test
+    void create_immutable_maps_with_perfect_hashing_for_read_mostly_lookups() {
+        Map<String, String> aModifiableMap = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            aModifiableMap.put("/api/v1/resource-" + i, "handler-" + i);
+        }
+        // different keys with the same String.hashCode are separated too
+        aModifiableMap.put("Aa", "same hash code as BB");
+        aModifiableMap.put("BB", "same hash code as Aa");
+        aModifiableMap.put("AaBB", "same hash code as BBAa");
+        aModifiableMap.put("BBAa", "same hash code as AaBB");
+
+        Map<String, String> anImmutableMap = PerfectHashMap.copyOf(aModifiableMap);
+
+        assertThat(anImmutableMap).isEqualTo(Map.copyOf(aModifiableMap)).hasSize(10_004);
+        aModifiableMap.forEach((key, value) -> assertThat(anImmutableMap.get(key)).isEqualTo(value));
+        assertThat(anImmutableMap.get("/api/v1/resource-10000")).isNull();
+        assertThat(anImmutableMap.get("AaAa")).isNull();
+        assertThat(anImmutableMap.containsKey(42)).isFalse();
+        assertThat(PerfectHashMap.copyOf(Map.of()).get("key")).isNull();
+        assertThat(PerfectHashMap.copyOf(anImmutableMap)).isSameAs(anImmutableMap);
+
+        // Any number of keys with the same String.hashCode, e.g. all 2^n combinations of n "Aa" or "BB" blocks
+        List<String> collidingKeys = List.of("");
+        for (int blocks = 1; blocks <= 8; blocks++) {
+            collidingKeys = collidingKeys.stream().flatMap(key -> Stream.of(key + "Aa", key + "BB")).toList();
+            Map<String, Integer> collidingMap = new HashMap<>();
+            collidingKeys.forEach(key -> collidingMap.put(key, key.hashCode()));
+            collidingMap.put("/api/v1/resource-0", 0);
+
+            Map<String, Integer> aPerfectHashMap = PerfectHashMap.copyOf(collidingMap);
+            assertThat(aPerfectHashMap).isEqualTo(collidingMap);
+            assertThat(aPerfectHashMap.get("Aa".repeat(blocks - 1) + "C#")).isNull(); // same hash code, other characters
+        }
+
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> {
+                    anImmutableMap.put("key", "value"); // throws exception
+                }
+        );
+    }
+
+    @Test
+    void measure_retained_size_of_perfect_hash_maps() {
+        Map<String, String> routes = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            routes.put("/api/v1/resource-" + i, "handler-" + i);
+        }
+
+        // Heap used after full collections with 50 copies alive, so building garbage isn't counted; keys and values are shared
+        long copyOfBytes = retainedBytesPerCopy(() -> Map.copyOf(routes), 50);
+        long perfectHashBytes = retainedBytesPerCopy(() -> PerfectHashMap.copyOf(routes), 50);
+        System.out.println("Retained bytes of 10,000 entries, Map.copyOf: " + copyOfBytes + ", PerfectHashMap: " + perfectHashBytes);
+
+        // 4 * size() references against 2 * size() references and size() / 2 ints
+        assertThat(perfectHashBytes).isLessThan(copyOfBytes * 3 / 4);
+    }
+
+    private static long retainedBytesPerCopy(Supplier<Map<String, String>> copier, int copies) {
+        List<Map<String, String>> retained = new ArrayList<>(copies);
+        long before = usedHeapAfterFullCollection();
+        for (int i = 0; i < copies; i++) {
+            retained.add(copier.get());
+        }
+        long after = usedHeapAfterFullCollection();
+        Reference.reachabilityFence(retained);
+        return (after - before) / copies;
+    }
+
+    private static long usedHeapAfterFullCollection() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
     @Test
     void create_immutable_lists_with_new_collector() { // for sets and maps; use "Collectors.toUnmodifiableSet()" or "Collectors.toUnmodifiableMap(...)"
         List<String> aModifiableList = new ArrayList<>();
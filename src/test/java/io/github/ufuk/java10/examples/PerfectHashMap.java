@@ -0,0 +1,273 @@
+package io.github.ufuk.java10.examples;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+ * Immutable String-keyed map like Map.copyOf, but with a minimal perfect hash computed once when it is built
+ * (hash and displace: keys are grouped into buckets, each bucket gets a seed placing all its keys into free slots):
+ * - a lookup reads the seed of the key's bucket, then compares exactly one key, for hits and for misses alike
+ * - keys and values are kept in two arrays of exactly size() elements, plus an int per two keys for the seeds,
+ *   while Map.copyOf keeps both in a single array of 4 * size() elements to keep its linear probing short
+ * - keys with the same String.hashCode always share a bucket, so such buckets are split once more by hashing the
+ *   characters, any number of them fits (e.g. the 2^n keys made of n "Aa" or "BB" blocks)
+ * - building is more expensive than Map.copyOf, so it pays off for tables built once and read many times
+ * Like Map.copyOf, null keys and values are not allowed.
+ */
+public final class PerfectHashMap<V> extends AbstractMap<String, V> {
+
+    private static final int KEYS_PER_BUCKET = 2;
+
+    private static final int MAX_SEED_SEARCH = 1 << 20;
+
+    // Seeds are encoded as: negative = the slot of the only key of the bucket (bitwise complemented),
+    // CHARACTER_HASH bit set = in seeds, keys of the bucket share hash codes and the rest is the index of their
+    // sub-buckets in subSeeds (the count of sub-buckets, then a seed for each), in subSeeds the characters are hashed
+    // with the rest as seed, otherwise = seed for the String's cached hash code
+    private static final int CHARACTER_HASH = 1 << 30;
+
+    private static final int[] NO_SUB_SEEDS = {};
+
+    private final String[] keys;
+
+    private final Object[] values;
+
+    private final int[] seeds;
+
+    private final int[] subSeeds;
+
+    private PerfectHashMap(String[] keys, Object[] values, int[] seeds, int[] subSeeds) {
+        this.keys = keys;
+        this.values = values;
+        this.seeds = seeds;
+        this.subSeeds = subSeeds;
+    }
+
+    public static <V> PerfectHashMap<V> copyOf(Map<String, ? extends V> map) {
+        if (map instanceof PerfectHashMap<?>) {
+            @SuppressWarnings("unchecked")
+            PerfectHashMap<V> perfectHashMap = (PerfectHashMap<V>) map;
+            return perfectHashMap;
+        }
+
+        int size = map.size();
+        int bucketCount = Math.max(1, (size + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+        List<List<String>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>(KEYS_PER_BUCKET));
+        }
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+            Objects.requireNonNull(entry.getKey());
+            Objects.requireNonNull(entry.getValue());
+            buckets.get(bucketOf(entry.getKey().hashCode(), bucketCount)).add(entry.getKey());
+        }
+
+        // Buckets with keys sharing hash codes are replaced by sub-buckets of their keys, by the hash of the characters
+        int[] seeds = new int[bucketCount];
+        List<Group> groups = new ArrayList<>(bucketCount);
+        int subSeedCount = 0;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            List<String> bucketKeys = buckets.get(bucket);
+            if (bucketKeys.stream().mapToInt(String::hashCode).distinct().count() < bucketKeys.size()) {
+                seeds[bucket] = subSeedCount | CHARACTER_HASH;
+                subSeedCount += 1 + (bucketKeys.size() + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET;
+            } else {
+                groups.add(new Group(bucketKeys, seeds, bucket, false));
+            }
+        }
+        int[] subSeeds = subSeedCount == 0 ? NO_SUB_SEEDS : new int[subSeedCount];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            if (seeds[bucket] != 0) {
+                List<String> bucketKeys = buckets.get(bucket);
+                int base = seeds[bucket] & ~CHARACTER_HASH;
+                int subBucketCount = (bucketKeys.size() + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET;
+                subSeeds[base] = subBucketCount;
+                List<List<String>> subBuckets = new ArrayList<>(subBucketCount);
+                for (int i = 0; i < subBucketCount; i++) {
+                    subBuckets.add(new ArrayList<>(KEYS_PER_BUCKET));
+                    groups.add(new Group(subBuckets.get(i), subSeeds, base + 1 + i, true));
+                }
+                for (String key : bucketKeys) {
+                    subBuckets.get(subBucketOf(key, subBucketCount)).add(key);
+                }
+            }
+        }
+
+        // Largest buckets are placed first, while there are plenty of free slots
+        groups.sort(Comparator.comparingInt((Group group) -> group.keys().size()).reversed());
+
+        String[] keys = new String[size];
+        Object[] values = new Object[size];
+        int nextFreeSlot = 0;
+        for (Group group : groups) {
+            if (group.keys().size() > 1) {
+                int seed = findSeed(group.keys(), group.characterHash(), keys);
+                group.seeds()[group.index()] = seed;
+                for (String key : group.keys()) {
+                    keys[slotOf(key, seed, size)] = key;
+                }
+            } else if (group.keys().size() == 1) { // no need to search a seed, it takes any free slot
+                while (keys[nextFreeSlot] != null) {
+                    nextFreeSlot++;
+                }
+                keys[nextFreeSlot] = group.keys().getFirst();
+                group.seeds()[group.index()] = ~nextFreeSlot;
+            }
+        }
+        for (int slot = 0; slot < size; slot++) {
+            values[slot] = map.get(keys[slot]);
+        }
+        return new PerfectHashMap<>(keys, values, seeds, subSeeds);
+    }
+
+    @Override
+    public V get(Object key) {
+        int slot = slotOf(key);
+        @SuppressWarnings("unchecked")
+        V value = slot < 0 ? null : (V) values[slot];
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new Iterator<>() {
+
+                    private int slot;
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, V> next() {
+                        if (slot >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        @SuppressWarnings("unchecked")
+                        V value = (V) values[slot];
+                        return Map.entry(keys[slot++], value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    // Slot of the key, or -1 if it is not in the map
+    private int slotOf(Object key) {
+        if (!(key instanceof String text) || keys.length == 0) {
+            return -1;
+        }
+        int seed = seeds[bucketOf(text.hashCode(), seeds.length)];
+        if (seed >= CHARACTER_HASH) { // rare, only for keys sharing their hash codes with other keys
+            int base = seed & ~CHARACTER_HASH;
+            seed = subSeeds[base + 1 + subBucketOf(text, subSeeds[base])];
+        }
+        int slot = slotOf(text, seed, keys.length);
+        return text.equals(keys[slot]) ? slot : -1;
+    }
+
+    private static int slotOf(String key, int seed, int size) {
+        if (seed < 0) {
+            return ~seed;
+        }
+        int hash = (seed & CHARACTER_HASH) == 0 ? mix(key.hashCode() ^ seed * 0x9E3779B9) : characterHash(key, seed);
+        return reduce(hash, size);
+    }
+
+    private static int bucketOf(int hashCode, int bucketCount) {
+        return reduce(mix(hashCode), bucketCount);
+    }
+
+    private static int subBucketOf(String key, int subBucketCount) {
+        return reduce(characterHash(key, 0), subBucketCount);
+    }
+
+    // Tries seeds until all keys of the bucket fall into distinct free slots
+    private static int findSeed(List<String> bucketKeys, boolean characterHash, String[] slots) {
+        int[] candidateSlots = new int[bucketKeys.size()];
+        for (int attempt = 1; attempt < MAX_SEED_SEARCH; attempt++) {
+            int seed = characterHash ? attempt | CHARACTER_HASH : attempt;
+            if (fits(bucketKeys, seed, slots, candidateSlots)) {
+                return seed;
+            }
+        }
+        throw new IllegalStateException("No perfect hash found for a bucket of " + bucketKeys.size() + " keys");
+    }
+
+    private static boolean fits(List<String> bucketKeys, int seed, String[] slots, int[] candidateSlots) {
+        for (int i = 0; i < bucketKeys.size(); i++) {
+            int slot = slotOf(bucketKeys.get(i), seed, slots.length);
+            if (slots[slot] != null) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (candidateSlots[j] == slot) {
+                    return false;
+                }
+            }
+            candidateSlots[i] = slot;
+        }
+        return true;
+    }
+
+    // Finalizer of MurmurHash3, spreads every input bit over all output bits
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ hash >>> 16;
+    }
+
+    // Keys of a bucket or a sub-bucket, and where its seed goes
+    private record Group(List<String> keys, int[] seeds, int index, boolean characterHash) {
+    }
+
+    // FNV-1a over the characters, only for the rare buckets with keys having the same String.hashCode
+    private static int characterHash(String key, int seed) {
+        int hash = 0x811C9DC5 ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x01000193;
+        }
+        return mix(hash);
+    }
+
+    // Maps a hash uniformly into [0, size) with a multiplication instead of a division
+    private static int reduce(int hash, int size) {
+        return (int) (((hash & 0xFFFFFFFFL) * size) >>> 32);
+    }
+
+}
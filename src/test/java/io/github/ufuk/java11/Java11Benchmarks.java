@@ -0,0 +1,61 @@
+package io.github.ufuk.java11;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after pairs of {@link Java11Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java11Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java11Benchmarks {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    String[] texts;
+
+    @Setup
+    public void setUp() {
+        texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            texts[i] = i % 2 == 0 ? "        " : "  A" + i + "  ";
+        }
+    }
+
+    @Benchmark
+    public void trim_then_is_empty_before(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(text.trim().isEmpty());
+        }
+    }
+
+    @Benchmark
+    public void is_blank_after(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(text.isBlank());
+        }
+    }
+
+    @Benchmark
+    public void trim_before(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(text.trim());
+        }
+    }
+
+    @Benchmark
+    public void strip_after(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(text.strip());
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package io.github.ufuk.java12;
+
+import io.github.ufuk.java12.examples.BulkCaseConverter;
+import io.github.ufuk.java12.examples.CompactNumberFormatter;
+import io.github.ufuk.java12.examples.MyEnum;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after pairs of {@link Java12Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java12Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java12Benchmarks {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    MyEnum[] messages;
+
+    long[] metricValues;
+
+    final NumberFormat sharedNumberFormat = NumberFormat.getCompactNumberInstance(Locale.of("en", "US"), NumberFormat.Style.SHORT);
+
+    final Locale turkish = Locale.of("tr", "TR");
+
+    final BulkCaseConverter bulkCaseConverter = BulkCaseConverter.of(turkish);
+
+    StringBuilder[] fields;
+
+    byte[][] latin1Fields;
+
+    final CompactNumberFormatter compactNumberFormatter = CompactNumberFormatter.of(Locale.of("en", "US"), NumberFormat.Style.SHORT);
+
+    @Setup
+    public void setUp() {
+        MyEnum[] values = MyEnum.values();
+        messages = new MyEnum[size];
+        for (int i = 0; i < size; i++) {
+            messages[i] = values[i % values.length];
+        }
+
+        Random random = new Random(42);
+        metricValues = new long[size];
+        for (int i = 0; i < size; i++) {
+            metricValues[i] = random.nextLong() >>> random.nextInt(1, 64);
+        }
+
+        // Short ingested fields, mostly ASCII, some already upper case, a few with Turkish letters
+        String[] words = {"istanbul", "ANKARA", "order-id", "Status:ok", "fıstık", "user_42", "GET", "content-type"};
+        fields = new StringBuilder[size];
+        latin1Fields = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            String word = words[i % words.length];
+            fields[i] = new StringBuilder(word);
+            latin1Fields[i] = word.replace('ı', 'i').getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Benchmark
+    public void switch_statement_with_break_before(Blackhole blackhole) {
+        for (MyEnum message : messages) {
+            String response;
+            switch (message) {
+                case HELLO:
+                    response = "hi";
+                    break;
+                case GOOD_BYE:
+                case LATER:
+                    response = "see you";
+                    break;
+                default:
+                    response = "nothing to say";
+            }
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    public void switch_expression_after(Blackhole blackhole) {
+        for (MyEnum message : messages) {
+            String response = switch (message) {
+                case HELLO -> "hi";
+                case GOOD_BYE, LATER -> "see you";
+                default -> "nothing to say";
+            };
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    public void case_conversion_of_char_sequences_before(Blackhole blackhole) {
+        for (StringBuilder field : fields) {
+            blackhole.consume(field.toString().toUpperCase(turkish));
+        }
+    }
+
+    @Benchmark
+    public void case_conversion_of_char_sequences_after(Blackhole blackhole) {
+        blackhole.consume(bulkCaseConverter.toUpperCase(fields));
+    }
+
+    @Benchmark
+    public void case_conversion_of_latin1_bytes_before(Blackhole blackhole) {
+        for (byte[] field : latin1Fields) {
+            blackhole.consume(new String(field, StandardCharsets.ISO_8859_1).toUpperCase(turkish));
+        }
+    }
+
+    @Benchmark
+    public void case_conversion_of_latin1_bytes_after(Blackhole blackhole) {
+        blackhole.consume(bulkCaseConverter.toUpperCase(latin1Fields));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void compact_number_formating_with_new_instance_before(Blackhole blackhole) {
+        for (long value : metricValues) {
+            NumberFormat numberFormat = NumberFormat.getCompactNumberInstance(Locale.of("en", "US"), NumberFormat.Style.SHORT);
+            blackhole.consume(numberFormat.format(value));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void compact_number_formating_with_lock_before(Blackhole blackhole) {
+        for (long value : metricValues) {
+            synchronized (sharedNumberFormat) {
+                blackhole.consume(sharedNumberFormat.format(value));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void compact_number_formating_with_shared_formatter_after(Blackhole blackhole) {
+        StringBuilder label = new StringBuilder(32);
+        for (long value : metricValues) {
+            label.setLength(0);
+            blackhole.consume(compactNumberFormatter.appendTo(label, value));
+        }
+    }
+
+}
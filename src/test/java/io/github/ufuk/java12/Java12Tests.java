@@ -1,13 +1,19 @@
 package io.github.ufuk.java12;
 
+import io.github.ufuk.java12.examples.BulkCaseConverter;
+import io.github.ufuk.java12.examples.CompactNumberFormatter;
 import io.github.ufuk.java12.examples.MyEnum;
+import io.github.ufuk.java12.examples.ParallelFileMismatch;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.function.Function;
 
@@ -35,6 +41,43 @@ class Java12Tests {
         assertThat(aTransformedString).isEqualTo("FISTIKÇI ŞAHAP");
     }
 
+    @Test
+    void bulk_case_conversion_with_ascii_fast_path() {
+        BulkCaseConverter turkish = BulkCaseConverter.of(Locale.of("tr", "TR"));
+
+        assertThat(turkish.toUpperCase("Fıstıkçı Şahap")).isEqualTo("FISTIKÇI ŞAHAP");
+        assertThat(turkish.toUpperCase("istanbul")).isEqualTo("İSTANBUL"); // dotted capital i, even for ASCII input
+        assertThat(turkish.toLowerCase(new StringBuilder("IRMAK"))).isEqualTo("ırmak");
+        assertThat(turkish.toUpperCase("FISTIK")).isSameAs("FISTIK"); // nothing to convert, nothing copied
+
+        // Byte-identical to the JDK for every locale, for texts both in and out of the ASCII fast path
+        String[] corpus = {
+                "", "a", "I", "i", "hello world", "HELLO WORLD", "Mixed Case 123 !?", "istanbul", "IRMAK", "Fıstıkçı Şahap",
+                "İi Iı", "straße", "ΟΔΟΣ", "Οδός σοφίας", "Ii\u0300 Į\u0301 J\u0303", "i\u0307", "ÿ µ é É", "ǅ ǈ ǋ", "\uD801\uDC00"
+        };
+        for (Locale locale : Locale.getAvailableLocales()) {
+            BulkCaseConverter converter = BulkCaseConverter.of(locale);
+            for (String text : corpus) {
+                assertThat(converter.toUpperCase(text)).isEqualTo(text.toUpperCase(locale));
+                assertThat(converter.toLowerCase(new StringBuilder(text))).isEqualTo(text.toLowerCase(locale));
+            }
+            assertThat(converter.toUpperCase(corpus)).containsExactly(Arrays.stream(corpus).map(text -> text.toUpperCase(locale)).toArray(String[]::new));
+        }
+
+        // Latin-1 bytes, e.g. a field of a record read from a file
+        byte[] line = "id=42;city=istanbul;note=Mixed Case straße ÿ".getBytes(StandardCharsets.ISO_8859_1);
+        for (Locale locale : new Locale[]{Locale.ROOT, Locale.of("tr", "TR"), Locale.of("az"), Locale.of("lt"), Locale.GERMANY}) {
+            BulkCaseConverter converter = BulkCaseConverter.of(locale);
+            for (int from = 0; from < line.length; from++) {
+                String text = new String(line, from, line.length - from, StandardCharsets.ISO_8859_1);
+                assertThat(converter.toUpperCase(line, from, line.length - from)).isEqualTo(text.toUpperCase(locale));
+                assertThat(converter.toLowerCase(line, from, line.length - from)).isEqualTo(text.toLowerCase(locale));
+            }
+            String lowerCaseLine = new String(line, StandardCharsets.ISO_8859_1).toLowerCase(locale);
+            assertThat(converter.toLowerCase(line, line)).containsExactly(lowerCaseLine, lowerCaseLine);
+        }
+    }
+
     @Test
     void check_if_two_files_have_different_content() throws IOException {
         Path pathToTestFile1 = Paths.get("src/test/resources/test1.txt");
@@ -46,6 +89,26 @@ class Java12Tests {
         }
     }
 
+    @Test
+    void check_if_two_large_files_have_different_content_in_parallel(@TempDir Path directory) throws IOException {
+        byte[] content = new byte[1024 * 1024];
+        Path original = Files.write(directory.resolve("original.bin"), content);
+
+        content[300_000] = 1;
+        content[900_000] = 1;
+        Path replica = Files.write(directory.resolve("replica.bin"), content);
+
+        // Small regions, just to compare the files in many parallel steps
+        ParallelFileMismatch parallelFileMismatch = new ParallelFileMismatch(64 * 1024, 4);
+
+        assertThat(parallelFileMismatch.mismatch(original, replica))
+                .isEqualTo(Files.mismatch(original, replica))
+                .isEqualTo(300_000);
+        assertThat(parallelFileMismatch.mismatch(original, original)).isEqualTo(-1);
+        assertThat(parallelFileMismatch.mismatch(original, Paths.get("src/test/resources/test1.txt")))
+                .isEqualTo(Files.mismatch(original, Paths.get("src/test/resources/test1.txt")));
+    }
+
     @Test
     void compact_number_formating() {
         NumberFormat shortStyle = NumberFormat.getCompactNumberInstance(Locale.of("en", "US"), NumberFormat.Style.SHORT);
@@ -61,6 +124,53 @@ class Java12Tests {
         assertThat(longStyleTurkish.format(12345)).isEqualTo("12 bin");
     }
 
+    @Test
+    void compact_number_formating_with_a_shared_formatter() {
+        CompactNumberFormatter shortStyle = CompactNumberFormatter.of(Locale.of("en", "US"), NumberFormat.Style.SHORT);
+        assertThat(shortStyle.format(12345)).isEqualTo("12K");
+
+        CompactNumberFormatter longStyle = CompactNumberFormatter.of(Locale.of("en", "US"), NumberFormat.Style.LONG);
+        assertThat(longStyle.format(12345)).isEqualTo("12 thousand");
+
+        CompactNumberFormatter longStyleTurkish = CompactNumberFormatter.of(Locale.of("tr", "TR"), NumberFormat.Style.LONG);
+        assertThat(longStyleTurkish.format(12345)).isEqualTo("12 bin");
+
+        // Created once per locale and style, safe to share between threads
+        assertThat(CompactNumberFormatter.of(Locale.of("en", "US"), NumberFormat.Style.SHORT)).isSameAs(shortStyle);
+
+        // Appends to the given builder, e.g. a reused metric label
+        StringBuilder label = new StringBuilder("requests=");
+        shortStyle.appendTo(label, 1_250_000);
+        assertThat(label).hasToString("requests=1M");
+
+        // Same output as NumberFormat
+        for (Locale locale : new Locale[]{Locale.of("en", "US"), Locale.of("tr", "TR")}) {
+            for (NumberFormat.Style style : NumberFormat.Style.values()) {
+                NumberFormat numberFormat = NumberFormat.getCompactNumberInstance(locale, style);
+                CompactNumberFormatter compactNumberFormatter = CompactNumberFormatter.of(locale, style);
+                for (long value = -2_000_000; value <= 2_000_000; value += 997) {
+                    assertThat(compactNumberFormatter.format(value)).isEqualTo(numberFormat.format(value));
+                }
+                for (long value : new long[]{999, 1_000, 1_499, 1_500, 2_500, 999_499, 999_500, 999_744, 999_999, 1_000_000,
+                        695_006_000, 999_729_645, 999_555_245_482L, (1L << 53) + 1, 999_999_999_999_999_999L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+                    assertThat(compactNumberFormatter.format(value)).isEqualTo(numberFormat.format(value));
+                }
+                // over the full range, around each power of ten and where its halves and 999.5 of a unit round
+                long powerOfTen = 1;
+                for (int exponent = 1; exponent <= 18; exponent++) {
+                    powerOfTen *= 10;
+                    for (long edge : new long[]{powerOfTen, powerOfTen + powerOfTen / 2, 2 * powerOfTen + powerOfTen / 2,
+                            powerOfTen - powerOfTen / 2_000, powerOfTen - powerOfTen / 20_000}) {
+                        for (long value = edge - 1; value <= edge + 1; value++) {
+                            assertThat(compactNumberFormatter.format(value)).isEqualTo(numberFormat.format(value));
+                            assertThat(compactNumberFormatter.format(-value)).isEqualTo(numberFormat.format(-value));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     @Test
     void no_need_to_break_statement_with_new_shiny_lambda_like_switch_expresions() { // previewed in Java 12, released in Java 14
         // before
@@ -0,0 +1,172 @@
+package io.github.ufuk.java12.examples;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Same output as String.toUpperCase(Locale) and String.toLowerCase(Locale), but for many short texts:
+ * - ASCII texts are mapped through 128-entry tables learned once per locale from the JDK itself,
+ *   e.g. "i" becomes "İ" in Turkish and Azerbaijani, "I" becomes "ı"
+ * - texts already in the requested case are not copied (the same instance is returned for strings)
+ * - texts with any non-ASCII character are handed to the JDK as a whole, as their mapping may depend on context
+ *   (final sigma, Lithuanian dots, "ß" becoming "SS", ...)
+ * - Latin-1 bytes are converted without decoding them into an intermediate string first
+ * - batch methods reuse a single scratch buffer for all texts of the batch
+ */
+public final class BulkCaseConverter {
+
+    private static final int ASCII_LIMIT = 128;
+
+    private static final Map<Locale, BulkCaseConverter> CACHE = new ConcurrentHashMap<>();
+
+    private final Locale locale;
+
+    private final char[] upperCaseTable = new char[ASCII_LIMIT];
+
+    private final char[] lowerCaseTable = new char[ASCII_LIMIT];
+
+    private BulkCaseConverter(Locale locale) {
+        this.locale = locale;
+        for (char c = 0; c < ASCII_LIMIT; c++) {
+            upperCaseTable[c] = mapping(String.valueOf(c).toUpperCase(locale));
+            lowerCaseTable[c] = mapping(String.valueOf(c).toLowerCase(locale));
+        }
+    }
+
+    public static BulkCaseConverter of(Locale locale) {
+        return CACHE.computeIfAbsent(locale, BulkCaseConverter::new);
+    }
+
+    public String toUpperCase(CharSequence text) {
+        return convert(text, upperCaseTable, true, null);
+    }
+
+    public String toLowerCase(CharSequence text) {
+        return convert(text, lowerCaseTable, false, null);
+    }
+
+    public String toUpperCase(byte[] latin1, int offset, int length) {
+        return convert(latin1, offset, length, upperCaseTable, true, null);
+    }
+
+    public String toLowerCase(byte[] latin1, int offset, int length) {
+        return convert(latin1, offset, length, lowerCaseTable, false, null);
+    }
+
+    public String[] toUpperCase(CharSequence... texts) {
+        return convertAll(texts, upperCaseTable, true);
+    }
+
+    public String[] toLowerCase(CharSequence... texts) {
+        return convertAll(texts, lowerCaseTable, false);
+    }
+
+    public String[] toUpperCase(byte[]... latin1Texts) {
+        return convertAll(latin1Texts, upperCaseTable, true);
+    }
+
+    public String[] toLowerCase(byte[]... latin1Texts) {
+        return convertAll(latin1Texts, lowerCaseTable, false);
+    }
+
+    private String[] convertAll(CharSequence[] texts, char[] table, boolean upperCase) {
+        String[] results = new String[texts.length];
+        char[] scratch = new char[64];
+        for (int i = 0; i < texts.length; i++) {
+            if (scratch.length < texts[i].length()) {
+                scratch = new char[Math.max(texts[i].length(), scratch.length * 2)];
+            }
+            results[i] = convert(texts[i], table, upperCase, scratch);
+        }
+        return results;
+    }
+
+    private String[] convertAll(byte[][] latin1Texts, char[] table, boolean upperCase) {
+        String[] results = new String[latin1Texts.length];
+        char[] scratch = new char[64];
+        for (int i = 0; i < latin1Texts.length; i++) {
+            if (scratch.length < latin1Texts[i].length) {
+                scratch = new char[Math.max(latin1Texts[i].length, scratch.length * 2)];
+            }
+            results[i] = convert(latin1Texts[i], 0, latin1Texts[i].length, table, upperCase, scratch);
+        }
+        return results;
+    }
+
+    private String convert(CharSequence text, char[] table, boolean upperCase, char[] scratch) {
+        int length = text.length();
+
+        // Nothing is copied until the first character which changes
+        int first = 0;
+        for (; first < length; first++) {
+            char c = text.charAt(first);
+            if (c >= ASCII_LIMIT) {
+                return fallback(text.toString(), upperCase);
+            }
+            if (table[c] != c) {
+                break;
+            }
+        }
+        if (first == length) {
+            return text.toString();
+        }
+
+        char[] chars = scratch != null ? scratch : new char[length];
+        for (int i = 0; i < first; i++) {
+            chars[i] = text.charAt(i);
+        }
+        for (int i = first; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= ASCII_LIMIT) {
+                return fallback(text.toString(), upperCase);
+            }
+            chars[i] = table[c];
+        }
+        return new String(chars, 0, length);
+    }
+
+    private String convert(byte[] latin1, int offset, int length, char[] table, boolean upperCase, char[] scratch) {
+        int end = offset + length;
+
+        int first = offset;
+        for (; first < end; first++) {
+            byte b = latin1[first];
+            if (b < 0) { // above 0x7F
+                return fallback(new String(latin1, offset, length, StandardCharsets.ISO_8859_1), upperCase);
+            }
+            if (table[b] != b) {
+                break;
+            }
+        }
+        if (first == end) {
+            return new String(latin1, offset, length, StandardCharsets.ISO_8859_1);
+        }
+
+        char[] chars = scratch != null ? scratch : new char[length];
+        for (int i = offset; i < first; i++) {
+            chars[i - offset] = (char) latin1[i];
+        }
+        for (int i = first; i < end; i++) {
+            byte b = latin1[i];
+            if (b < 0) {
+                return fallback(new String(latin1, offset, length, StandardCharsets.ISO_8859_1), upperCase);
+            }
+            chars[i - offset] = table[b];
+        }
+        return new String(chars, 0, length);
+    }
+
+    private String fallback(String text, boolean upperCase) {
+        return upperCase ? text.toUpperCase(locale) : text.toLowerCase(locale);
+    }
+
+    private static char mapping(String mapped) {
+        if (mapped.length() != 1) { // no such ASCII mapping in any locale the JDK supports
+            throw new IllegalStateException("ASCII character is mapped to more than one character: " + mapped);
+        }
+        return mapped.charAt(0);
+    }
+
+}
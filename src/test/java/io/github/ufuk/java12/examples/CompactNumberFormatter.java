@@ -0,0 +1,175 @@
+package io.github.ufuk.java12.examples;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Same output as NumberFormat.getCompactNumberInstance (default maximum fraction digits of 0), but:
+ * - prefixes, suffixes and divisors of each magnitude are extracted once per locale and style
+ * - immutable, so a single instance is shared by all threads (NumberFormat instances are not thread-safe)
+ * - appends into a given StringBuilder without creating intermediate objects (but for values of 2^53 and above)
+ * Plural forms are limited to "one" and "other", which is enough for English and Turkish.
+ * The JDK rounds by the BigDecimal of the value as a double, so the rounding depends on its trailing zeros, e.g. it shows
+ * 999,729,645 as 1B, but also 695,006,000 as 1B; this class does the same arithmetic on longs.
+ * That rounding is the one of JDK 21, which this class is written and verified against; patterns come from the running
+ * JDK, so other CLDR data is fine, but another rounding would not be (Java12Tests compares boundary values with it).
+ */
+public final class CompactNumberFormatter {
+
+    private static final int MAX_MAGNITUDE = 18; // 10^18 is the largest power of ten which fits into a long
+
+    private static final int DOUBLE_EXACT_MAGNITUDE = 15; // every long below 10^16 (and 2^53) is exact as a double
+
+    private static final Map<Key, CompactNumberFormatter> CACHE = new ConcurrentHashMap<>();
+
+    private final char minusSign;
+
+    // Indexed by magnitude, i.e. count of digits - 1, divisor is 1 when there is no compact form
+    private final long[] divisors = new long[MAX_MAGNITUDE + 1];
+
+    private final String[] prefixes = new String[MAX_MAGNITUDE + 1];
+
+    private final String[] oneSuffixes = new String[MAX_MAGNITUDE + 1];
+
+    private final String[] otherSuffixes = new String[MAX_MAGNITUDE + 1];
+
+    private CompactNumberFormatter(Locale locale, NumberFormat.Style style) {
+        this.minusSign = DecimalFormatSymbols.getInstance(locale).getMinusSign();
+
+        // Learns the patterns by formatting 1, 1 and a bit and 2 times each power of ten once
+        NumberFormat probe = NumberFormat.getCompactNumberInstance(locale, style);
+        for (int magnitude = 0; magnitude <= MAX_MAGNITUDE; magnitude++) {
+            long powerOfTen = pow10(magnitude);
+            String shown = probe.format(powerOfTen);
+            String one = magnitude <= DOUBLE_EXACT_MAGNITUDE ? probe.format(powerOfTen + 1) : shown; // 10^m is rounded as 0 from 10^7 on
+            String other = magnitude < MAX_MAGNITUDE ? probe.format(2 * powerOfTen) : shown;
+
+            int digitsStart = firstDigit(shown);
+            int digitsEnd = lastDigit(shown) + 1;
+
+            divisors[magnitude] = powerOfTen / Long.parseLong(shown.substring(digitsStart, digitsEnd));
+            prefixes[magnitude] = shown.substring(0, digitsStart);
+            oneSuffixes[magnitude] = one.substring(lastDigit(one) + 1);
+            otherSuffixes[magnitude] = other.substring(lastDigit(other) + 1);
+        }
+    }
+
+    public static CompactNumberFormatter of(Locale locale, NumberFormat.Style style) {
+        return CACHE.computeIfAbsent(new Key(locale, style), key -> new CompactNumberFormatter(key.locale(), key.style()));
+    }
+
+    public String format(long value) {
+        return appendTo(new StringBuilder(16), value).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder builder, long value) {
+        if (value == Long.MIN_VALUE) { // can't be negated, precision is lost anyway at this magnitude
+            value = Long.MIN_VALUE + 1;
+        }
+        if (value < 0) {
+            builder.append(minusSign);
+            value = -value;
+        }
+
+        int exponent = magnitudeOf(value);
+        int magnitude = exponent;
+        long divisor = divisors[magnitude];
+        if (divisor == 1) {
+            return builder.append(value);
+        }
+
+        // Like CompactNumberFormat, the magnitude and the plural form are decided by the rounded value,
+        // e.g. 999,999 is shown as 1M but 999,744 is shown as 1000K
+        long rounded = roundLikeJdk(value, exponent, divisor);
+        if (magnitude < MAX_MAGNITUDE && divisors[magnitude + 1] != divisor && rounded == divisors[magnitude + 1] / divisor) {
+            magnitude++;
+            divisor = divisors[magnitude];
+            rounded = roundLikeJdk(value, exponent, divisor);
+        }
+
+        // The digits are those of the value as a double divided by the divisor, rounded half-even
+        long shown = value % divisor == 0 ? value / divisor : (long) Math.rint((double) value / divisor);
+        return builder.append(prefixes[magnitude])
+                .append(shown)
+                .append(rounded == 1 ? oneSuffixes[magnitude] : otherSuffixes[magnitude]);
+    }
+
+    /*
+     * BigDecimal.valueOf((double) value).divide(BigDecimal.valueOf((double) divisor), HALF_EVEN).intValue() without
+     * the BigDecimals: the quotient keeps the scale of the value, which comes from Double.toString, i.e. tenths below
+     * 10^7 (then truncated by intValue), above it a unit as large as the trailing zeros ("6.95006E8" has a scale of -3,
+     * "1.0E9" of -8)
+     */
+    private static long roundLikeJdk(long value, int exponent, long divisor) {
+        if (exponent < 7) {
+            return roundHalfEven(value, divisor / 10) / 10;
+        }
+        if (exponent > DOUBLE_EXACT_MAGNITUDE || value >= 1L << 53) { // not exact as a double anymore
+            return BigDecimal.valueOf((double) value).divide(BigDecimal.valueOf((double) divisor), RoundingMode.HALF_EVEN).longValue();
+        }
+        int trailingZeros = 0;
+        while (value % pow10(trailingZeros + 1) == 0) {
+            trailingZeros++;
+        }
+        int unitExponent = trailingZeros == exponent ? trailingZeros - 1 : trailingZeros; // a single digit is printed as "d.0"
+        long unit = pow10(unitExponent);
+        if (unit > Long.MAX_VALUE / divisor) { // more than twice the value, so it rounds to 0
+            return 0;
+        }
+        return roundHalfEven(value, divisor * unit) * unit;
+    }
+
+    // Half-even is the default rounding mode of NumberFormat
+    private static long roundHalfEven(long value, long divisor) {
+        long quotient = value / divisor;
+        long remainder = value % divisor;
+        if (remainder > divisor - remainder || (remainder == divisor - remainder && (quotient & 1) == 1)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    // Like the JDK, by the value as a double, e.g. 10^18 - 1 has the magnitude of 10^18
+    private static int magnitudeOf(long value) {
+        int magnitude = 0;
+        while (magnitude < MAX_MAGNITUDE && (double) value >= pow10(magnitude + 1)) {
+            magnitude++;
+        }
+        return magnitude;
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private static int firstDigit(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isDigit(text.charAt(i))) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No digits in compact number: " + text);
+    }
+
+    private static int lastDigit(String text) {
+        for (int i = text.length() - 1; i >= 0; i--) {
+            if (Character.isDigit(text.charAt(i))) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No digits in compact number: " + text);
+    }
+
+    private record Key(Locale locale, NumberFormat.Style style) {
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.github.ufuk.java12.examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Same result as Files.mismatch, but regions of the files are compared in parallel:
+ * - both files are memory-mapped region by region, MemorySegment.mismatch compares them with wide (vectorized) instructions
+ * - workers claim regions in increasing order, so once a mismatch is found, regions after it are skipped
+ */
+public class ParallelFileMismatch {
+
+    public static final long DEFAULT_REGION_SIZE = 16L * 1024 * 1024;
+
+    private final long regionSize;
+
+    private final int parallelism;
+
+    public ParallelFileMismatch() {
+        this(DEFAULT_REGION_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelFileMismatch(long regionSize, int parallelism) {
+        if (regionSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Region size and parallelism must be positive");
+        }
+        this.regionSize = regionSize;
+        this.parallelism = parallelism;
+    }
+
+    // Returns the position of the first mismatched byte, or -1 if the files are equal
+    public long mismatch(Path path1, Path path2) throws IOException {
+        if (Files.isSameFile(path1, path2)) {
+            return -1;
+        }
+
+        try (FileChannel channel1 = FileChannel.open(path1, StandardOpenOption.READ);
+             FileChannel channel2 = FileChannel.open(path2, StandardOpenOption.READ)) {
+            long size1 = channel1.size();
+            long size2 = channel2.size();
+            long commonSize = Math.min(size1, size2);
+
+            long mismatch = mismatch(channel1, channel2, commonSize);
+            if (mismatch >= 0) {
+                return mismatch;
+            }
+            return size1 == size2 ? -1 : commonSize; // one of the files is a prefix of the other
+        }
+    }
+
+    private long mismatch(FileChannel channel1, FileChannel channel2, long size) throws IOException {
+        long regionCount = (size + regionSize - 1) / regionSize;
+        AtomicInteger nextRegion = new AtomicInteger();
+        AtomicLong lowestMismatch = new AtomicLong(Long.MAX_VALUE);
+
+        Callable<Void> worker = () -> {
+            for (long region = nextRegion.getAndIncrement(); region < regionCount; region = nextRegion.getAndIncrement()) {
+                long start = region * regionSize;
+                if (start >= lowestMismatch.get()) { // a mismatch before this region is already found
+                    break;
+                }
+                long mismatch = compareRegion(channel1, channel2, start, Math.min(regionSize, size - start));
+                if (mismatch >= 0) {
+                    lowestMismatch.accumulateAndGet(start + mismatch, Math::min);
+                    break;
+                }
+            }
+            return null;
+        };
+
+        int workerCount = (int) Math.min(parallelism, regionCount);
+        List<Callable<Void>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(worker);
+        }
+
+        try (ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, workerCount))) {
+            for (Future<Void> future : executorService.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IllegalStateException("Comparing failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Comparing interrupted", e);
+        }
+
+        long mismatch = lowestMismatch.get();
+        return mismatch == Long.MAX_VALUE ? -1 : mismatch;
+    }
+
+    private static long compareRegion(FileChannel channel1, FileChannel channel2, long start, long length) {
+        // Mappings are released as soon as the region is compared
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment region1 = channel1.map(FileChannel.MapMode.READ_ONLY, start, length, arena);
+            MemorySegment region2 = channel2.map(FileChannel.MapMode.READ_ONLY, start, length, arena);
+            return region1.mismatch(region2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
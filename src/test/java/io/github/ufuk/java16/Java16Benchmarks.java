@@ -0,0 +1,150 @@
+package io.github.ufuk.java16;
+
+import io.github.ufuk.java16.examples.RecordCodec;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Before/after pairs of {@link Java16Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java16Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java16Benchmarks {
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    List<String> aModifiableList;
+
+    List<Order> orders;
+
+    byte[] serializedOrders;
+
+    byte[] encodedOrders;
+
+    @Setup
+    public void setUp() throws IOException {
+        aModifiableList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            aModifiableList.add(String.valueOf(i));
+        }
+
+        orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            orders.add(new Order(i, "customer-" + (i % 100), i * 1.5, i % 3 == 0, new Address("Istanbul", "34" + i % 1000)));
+        }
+        serializedOrders = serialize(orders, new EncodedBytes());
+        encodedOrders = encode(orders, new EncodedBytes());
+    }
+
+    @Benchmark
+    public List<String> collect_to_unmodifiable_list_before() {
+        return aModifiableList.stream()
+                .filter(StringUtils::isNumeric)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    @Benchmark
+    public List<String> stream_to_list_after() {
+        return aModifiableList.stream()
+                .filter(StringUtils::isNumeric)
+                .toList();
+    }
+
+    public record Address(String city, String postalCode) implements Serializable {
+    }
+
+    public record Order(long id, String customer, double amount, boolean express, Address address) implements Serializable {
+    }
+
+    // Totals reported next to the throughput, bytes / records is the encoded size of a record (stream header included)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class EncodedBytes {
+
+        public long bytes;
+
+        public long records;
+
+        void add(int bytes, int records) {
+            this.bytes += bytes;
+            this.records += records;
+        }
+
+    }
+
+    @Benchmark
+    public byte[] serialize_records_with_object_output_stream_before(EncodedBytes encodedBytes) throws IOException {
+        return serialize(orders, encodedBytes);
+    }
+
+    @Benchmark
+    public byte[] encode_records_with_record_codec_after(EncodedBytes encodedBytes) {
+        return encode(orders, encodedBytes);
+    }
+
+    @Benchmark
+    public List<Order> deserialize_records_with_object_input_stream_before() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedOrders))) {
+            List<Order> decoded = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                decoded.add((Order) in.readObject());
+            }
+            return decoded;
+        }
+    }
+
+    @Benchmark
+    public List<Order> decode_records_with_record_codec_after() {
+        RecordCodec<Order> codec = RecordCodec.of(Order.class);
+        ByteBuffer buffer = ByteBuffer.wrap(encodedOrders);
+        List<Order> decoded = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            decoded.add(codec.decode(buffer));
+        }
+        return decoded;
+    }
+
+    private static byte[] serialize(List<Order> orders, EncodedBytes encodedBytes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            for (Order order : orders) {
+                out.writeObject(order);
+            }
+        }
+        encodedBytes.add(bytes.size(), orders.size());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encode(List<Order> orders, EncodedBytes encodedBytes) {
+        RecordCodec<Order> codec = RecordCodec.of(Order.class);
+        int size = 0;
+        for (Order order : orders) {
+            size += codec.encodedSize(order);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Order order : orders) {
+            codec.encode(order, buffer);
+        }
+        encodedBytes.add(size, orders.size());
+        return buffer.array();
+    }
+
+}
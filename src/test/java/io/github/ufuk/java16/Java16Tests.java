@@ -1,11 +1,20 @@
 package io.github.ufuk.java16;
 
+import io.github.ufuk.java14.examples.MyImmutableDataModel;
+import io.github.ufuk.java16.examples.RecordCodec;
+import io.github.ufuk.java17.examples.Cat;
+import io.github.ufuk.java17.examples.Dog;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -33,4 +42,52 @@ class Java16Tests {
         );
     }
 
+    @Test
+    void encode_records_to_binary_without_reflection() {
+        RecordCodec<MyImmutableDataModel> codec = RecordCodec.of(MyImmutableDataModel.class);
+        var lucky = new MyImmutableDataModel("13", "Lucky");
+
+        byte[] bytes = codec.encode(lucky);
+
+        assertThat(bytes).hasSize(RecordCodec.HEADER_SIZE + (1 + 2) + (1 + 5)); // length-prefixed components
+        assertThat(codec.decode(bytes)).isEqualTo(lucky);
+        assertThat(codec.decode(codec.encode(new MyImmutableDataModel("13", null)))).isEqualTo(new MyImmutableDataModel("13", null));
+        assertThat(RecordCodec.of(MyImmutableDataModel.class)).isSameAs(codec); // inspected once per type
+
+        // Same components, but another record: the schema fingerprint in the header doesn't match
+        byte[] cat = RecordCodec.of(Cat.class).encode(new Cat("Tom"));
+        assertThat(RecordCodec.of(Cat.class).decode(cat)).isEqualTo(new Cat("Tom"));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> {
+                    RecordCodec.of(Dog.class).decode(cat); // throws exception
+                }
+        );
+
+        // Primitives, enums, nested records and non-ASCII text, several records in a row in an off-heap segment
+        record Owner(String name, byte[] avatar) {
+        }
+        record Pet(long id, int age, double weight, boolean vaccinated, char grade, DayOfWeek walkDay, Owner owner, String note) {
+        }
+        RecordCodec<Pet> petCodec = RecordCodec.of(Pet.class);
+        List<Pet> pets = List.of(
+                new Pet(1L, 3, 4.5, true, 'A', DayOfWeek.MONDAY, new Owner("Ayşe", new byte[]{1, 2, 3}), "çok tatlı 🐈"),
+                new Pet(Long.MIN_VALUE, -1, Double.NaN, false, '\uFFFF', null, null, null),
+                new Pet(Long.MAX_VALUE, 300, -0.0, true, 'z', DayOfWeek.SUNDAY, new Owner(null, null), "\uD800 unpaired")
+        );
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(pets.stream().mapToInt(petCodec::encodedSize).sum());
+            ByteBuffer buffer = segment.asByteBuffer();
+            pets.forEach(pet -> petCodec.encode(pet, buffer));
+            assertThat(buffer.hasRemaining()).isFalse();
+
+            buffer.flip();
+            List<Pet> decoded = List.of(petCodec.decode(buffer), petCodec.decode(buffer), petCodec.decode(buffer));
+            assertThat(decoded.get(0)).usingRecursiveComparison().isEqualTo(pets.get(0));
+            assertThat(decoded.get(1)).isEqualTo(pets.get(1));
+            assertThat(decoded.get(2).owner()).usingRecursiveComparison().isEqualTo(new Owner(null, null));
+            assertThat(decoded.get(2).note()).isEqualTo("? unpaired");
+        }
+    }
+
 }
@@ -0,0 +1,509 @@
+package io.github.ufuk.java16.examples;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.zip.CRC32C;
+
+/*
+ * Binary codec for records (released in Java 16), without reflection on the hot path:
+ * - the record components are inspected once per type, the accessors and the canonical constructor are bound
+ *   as method handles, and the codec is cached per type in a ClassValue
+ * - every encoded record starts with a 5-byte header: the format version and a fingerprint of the schema
+ *   (record name, component names and types, nested records and enum constants included), so bytes written
+ *   by another shape of the record are rejected instead of being decoded into the wrong components
+ * - strings and byte arrays are length-prefixed (unsigned LEB128, 0 for null), primitives are big-endian,
+ *   nested records are written inline without header, enums as their ordinal
+ * - supported components: primitives, String, byte[], enums and records of these; recursive records aren't supported
+ * Works on any ByteBuffer, heap or direct; a MemorySegment can be written and read through asByteBuffer().
+ */
+public final class RecordCodec<R extends Record> {
+
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+
+    private static final ClassValue<RecordCodec<?>> CODECS = new ClassValue<>() {
+        @Override
+        protected RecordCodec<?> computeValue(Class<?> type) {
+            return new RecordCodec<>(type.asSubclass(Record.class));
+        }
+    };
+
+    private final Class<R> type;
+
+    private final String schema;
+
+    private final int fingerprint;
+
+    private final Component[] components;
+
+    private final MethodHandle constructor; // (Object[])Record
+
+    private RecordCodec(Class<R> type) {
+        this.type = type;
+        this.schema = schemaOf(type, new HashSet<>());
+        CRC32C crc = new CRC32C();
+        crc.update(schema.getBytes(StandardCharsets.UTF_8));
+        this.fingerprint = (int) crc.getValue();
+
+        RecordComponent[] recordComponents = type.getRecordComponents();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            this.components = new Component[recordComponents.length];
+            Class<?>[] parameterTypes = new Class<?>[recordComponents.length];
+            for (int i = 0; i < recordComponents.length; i++) {
+                RecordComponent recordComponent = recordComponents[i];
+                MethodHandle accessor = lookup.unreflect(recordComponent.getAccessor())
+                        .asType(MethodType.methodType(Object.class, Record.class));
+                components[i] = new Component(Kind.of(recordComponent.getType()), recordComponent.getType(), accessor,
+                        recordComponent.getType().getEnumConstants());
+                parameterTypes[i] = recordComponent.getType();
+            }
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asType(MethodType.methodType(Record.class, parameterTypes))
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Record.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Record " + type.getName() + " is not accessible", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <R extends Record> RecordCodec<R> of(Class<R> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(type.getName() + " is not a record");
+        }
+        return (RecordCodec<R>) CODECS.get(type);
+    }
+
+    public Class<R> type() {
+        return type;
+    }
+
+    public String schema() {
+        return schema;
+    }
+
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    // Exact number of bytes encode writes for the record, header included
+    public int encodedSize(R record) {
+        return HEADER_SIZE + bodySize(record);
+    }
+
+    public byte[] encode(R record) {
+        byte[] bytes = new byte[encodedSize(record)];
+        encode(record, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    // Writes the record at the position of the buffer and advances it, throws BufferOverflowException if it doesn't fit
+    public void encode(R record, ByteBuffer buffer) {
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.putInt(fingerprint);
+        writeBody(record, buffer);
+    }
+
+    public R decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        R record = decode(buffer);
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " trailing bytes after " + type.getName());
+        }
+        return record;
+    }
+
+    // Reads a record at the position of the buffer and advances it past the record
+    public R decode(ByteBuffer buffer) {
+        try {
+            int version = buffer.get() & 0xFF;
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported format version " + version + ", expected " + FORMAT_VERSION);
+            }
+            int actualFingerprint = buffer.getInt();
+            if (actualFingerprint != fingerprint) {
+                throw new IllegalArgumentException("Schema fingerprint " + Integer.toHexString(actualFingerprint)
+                        + " doesn't match " + Integer.toHexString(fingerprint) + " of " + schema);
+            }
+            return readBody(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated " + type.getName(), e);
+        }
+    }
+
+    private int bodySize(R record) {
+        int size = 0;
+        for (Component component : components) {
+            size += component.kind.size(component, component.get(record));
+        }
+        return size;
+    }
+
+    private void writeBody(R record, ByteBuffer buffer) {
+        for (Component component : components) {
+            component.kind.write(component, component.get(record), buffer);
+        }
+    }
+
+    private R readBody(ByteBuffer buffer) {
+        Object[] arguments = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            arguments[i] = components[i].kind.read(components[i], buffer);
+        }
+        try {
+            return type.cast((Record) constructor.invokeExact(arguments));
+        } catch (RuntimeException | Error e) { // e.g. validation in a compact constructor
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static String schemaOf(Class<?> type, Set<Class<?>> visiting) {
+        if (!visiting.add(type)) {
+            throw new IllegalArgumentException("Recursive record " + type.getName() + " is not supported");
+        }
+        StringJoiner schema = new StringJoiner(",", type.getName() + "(", ")");
+        for (RecordComponent component : type.getRecordComponents()) {
+            Class<?> componentType = component.getType();
+            String typeSchema = switch (Kind.of(componentType)) {
+                case RECORD -> schemaOf(componentType, visiting);
+                case ENUM -> componentType.getName() + Arrays.toString(componentType.getEnumConstants());
+                default -> componentType.getName();
+            };
+            schema.add(component.getName() + ":" + typeSchema);
+        }
+        visiting.remove(type);
+        return schema.toString();
+    }
+
+    private record Component(Kind kind, Class<?> type, MethodHandle accessor, Object[] enumConstants) {
+
+        Object get(Record record) {
+            try {
+                return accessor.invokeExact(record);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        RecordCodec<Record> nestedCodec() {
+            @SuppressWarnings("unchecked")
+            RecordCodec<Record> codec = (RecordCodec<Record>) CODECS.get(type);
+            return codec;
+        }
+
+    }
+
+    private enum Kind {
+
+        BOOLEAN(1) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.put((byte) ((Boolean) value ? 1 : 0));
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.get() != 0;
+            }
+        },
+        BYTE(Byte.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.put((Byte) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.get();
+            }
+        },
+        SHORT(Short.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.putShort((Short) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.getShort();
+            }
+        },
+        CHAR(Character.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.putChar((Character) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.getChar();
+            }
+        },
+        INT(Integer.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.putInt((Integer) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.getInt();
+            }
+        },
+        LONG(Long.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.putLong((Long) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.getLong();
+            }
+        },
+        FLOAT(Float.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.putFloat((Float) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.getFloat();
+            }
+        },
+        DOUBLE(Double.BYTES) {
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.putDouble((Double) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.getDouble();
+            }
+        },
+        STRING(-1) {
+            @Override
+            int size(Component component, Object value) {
+                if (value == null) {
+                    return 1;
+                }
+                int length = utf8Length((String) value);
+                return varIntSize(length + 1) + length;
+            }
+
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                if (value == null) {
+                    buffer.put((byte) 0);
+                    return;
+                }
+                String text = (String) value;
+                int length = utf8Length(text);
+                putVarInt(buffer, length + 1);
+                if (length != text.length() || !putAscii(text, buffer)) {
+                    buffer.put(text.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                int length = getVarInt(buffer) - 1;
+                if (length < 0) {
+                    return null;
+                }
+                checkRemaining(buffer, length);
+                String text;
+                if (buffer.hasArray()) {
+                    text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + length);
+                } else {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    text = new String(bytes, StandardCharsets.UTF_8);
+                }
+                return text;
+            }
+        },
+        BYTES(-1) {
+            @Override
+            int size(Component component, Object value) {
+                return value == null ? 1 : varIntSize(((byte[]) value).length + 1) + ((byte[]) value).length;
+            }
+
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                if (value == null) {
+                    buffer.put((byte) 0);
+                    return;
+                }
+                putVarInt(buffer, ((byte[]) value).length + 1);
+                buffer.put((byte[]) value);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                int length = getVarInt(buffer) - 1;
+                if (length < 0) {
+                    return null;
+                }
+                checkRemaining(buffer, length);
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                return bytes;
+            }
+        },
+        ENUM(-1) {
+            @Override
+            int size(Component component, Object value) {
+                return value == null ? 1 : varIntSize(((Enum<?>) value).ordinal() + 1);
+            }
+
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                putVarInt(buffer, value == null ? 0 : ((Enum<?>) value).ordinal() + 1);
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                int ordinal = getVarInt(buffer) - 1;
+                if (ordinal < 0) {
+                    return null;
+                }
+                if (ordinal >= component.enumConstants().length) {
+                    throw new IllegalArgumentException("Unknown ordinal " + ordinal + " of " + component.type().getName());
+                }
+                return component.enumConstants()[ordinal];
+            }
+        },
+        RECORD(-1) {
+            @Override
+            int size(Component component, Object value) {
+                return value == null ? 1 : 1 + component.nestedCodec().bodySize((Record) value);
+            }
+
+            @Override
+            void write(Component component, Object value, ByteBuffer buffer) {
+                buffer.put((byte) (value == null ? 0 : 1));
+                if (value != null) {
+                    component.nestedCodec().writeBody((Record) value, buffer);
+                }
+            }
+
+            @Override
+            Object read(Component component, ByteBuffer buffer) {
+                return buffer.get() == 0 ? null : component.nestedCodec().readBody(buffer);
+            }
+        };
+
+        private final int fixedSize;
+
+        Kind(int fixedSize) {
+            this.fixedSize = fixedSize;
+        }
+
+        static Kind of(Class<?> type) {
+            if (type == boolean.class) return BOOLEAN;
+            if (type == byte.class) return BYTE;
+            if (type == short.class) return SHORT;
+            if (type == char.class) return CHAR;
+            if (type == int.class) return INT;
+            if (type == long.class) return LONG;
+            if (type == float.class) return FLOAT;
+            if (type == double.class) return DOUBLE;
+            if (type == String.class) return STRING;
+            if (type == byte[].class) return BYTES;
+            if (type.isEnum()) return ENUM;
+            if (type.isRecord()) return RECORD;
+            throw new IllegalArgumentException("Unsupported record component type " + type.getName());
+        }
+
+        int size(Component component, Object value) {
+            return fixedSize;
+        }
+
+        abstract void write(Component component, Object value, ByteBuffer buffer);
+
+        abstract Object read(Component component, ByteBuffer buffer);
+
+    }
+
+    private static int utf8Length(String text) {
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 2; // 4 bytes per surrogate pair
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is replaced by '?'
+            } else if (c >= 0x800) {
+                length += 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    // Writes the text without encoding it into a temporary array, unless it isn't ASCII only
+    private static boolean putAscii(String text, ByteBuffer buffer) {
+        int start = buffer.position();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                buffer.position(start);
+                return false;
+            }
+            buffer.put((byte) c);
+        }
+        return true;
+    }
+
+    private static int varIntSize(int value) {
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed length");
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+}
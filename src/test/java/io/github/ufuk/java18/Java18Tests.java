@@ -1,15 +1,27 @@
 package io.github.ufuk.java18;
 
+import com.sun.net.httpserver.HttpServer;
+import io.github.ufuk.java18.examples.CachingFileHandler;
+import io.github.ufuk.java18.examples.HttpLoadGenerator;
 import io.github.ufuk.java18.examples.MySimpleWebServer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Further readings:
@@ -41,4 +53,102 @@ class Java18Tests {
         assertThat(httpResponse.body()).contains("<h1>Hello, World!</h1>");
     }
 
+    @Test
+    void static_http_file_server_with_virtual_threads_cache_and_conditional_responses() throws Exception {
+        // Port 0 picks a free port
+        try (var server = MySimpleWebServer.initializeHighThroughputServer(0, 1024, 1024 * 1024)) {
+            var uri = new URI("http://localhost:" + server.getAddress().getPort() + "/index.html");
+            var httpClient = HttpClient.newBuilder().build();
+
+            var httpResponse = httpClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(httpResponse.statusCode()).isEqualTo(200);
+            assertThat(httpResponse.body()).contains("<h1>Hello, World!</h1>");
+
+            // Not modified since the previous response, so no body is sent
+            var eTag = httpResponse.headers().firstValue("ETag").orElseThrow();
+            var conditionalResponse = httpClient.send(HttpRequest.newBuilder(uri).header("If-None-Match", eTag).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(conditionalResponse.statusCode()).isEqualTo(304);
+            assertThat(conditionalResponse.body()).isEmpty();
+
+            // Pre-compressed index.html.gz is served to clients accepting gzip
+            var gzipResponse = httpClient.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+            assertThat(gzipResponse.headers().firstValue("Content-Encoding")).hasValue("gzip");
+            try (var body = new GZIPInputStream(gzipResponse.body())) {
+                assertThat(new String(body.readAllBytes())).contains("<h1>Hello, World!</h1>");
+            }
+
+            // Unless gzip is refused with a quality of 0
+            for (var acceptEncoding : List.of("gzip;q=0", "br, gzip; q=0.0", "*;q=0", "identity")) {
+                var plainResponse = httpClient.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", acceptEncoding).GET().build(), HttpResponse.BodyHandlers.ofString());
+                assertThat(plainResponse.headers().firstValue("Content-Encoding")).isEmpty();
+                assertThat(plainResponse.body()).contains("<h1>Hello, World!</h1>");
+            }
+            var anyResponse = httpClient.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "br;q=1, *;q=0.5").GET().build(), HttpResponse.BodyHandlers.discarding());
+            assertThat(anyResponse.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        }
+    }
+
+    @Test
+    void static_http_file_server_with_reserved_characters_in_file_names(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("a+b.txt"), "plus");
+        Files.writeString(root.resolve("a b.txt"), "space");
+
+        var server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", new CachingFileHandler(root, 1024));
+        server.start();
+        try {
+            var httpClient = HttpClient.newBuilder().build();
+            var baseUri = "http://localhost:" + server.getAddress().getPort();
+
+            // Paths are percent-decoded only, a '+' is a '+' unlike in HTML forms
+            for (var path : Map.of("/a+b.txt", "plus", "/a%2Bb.txt", "plus", "/a%20b.txt", "space").entrySet()) {
+                var httpResponse = httpClient.send(HttpRequest.newBuilder(new URI(baseUri + path.getKey())).GET().build(), HttpResponse.BodyHandlers.ofString());
+                assertThat(httpResponse.statusCode()).isEqualTo(200);
+                assertThat(httpResponse.body()).isEqualTo(path.getValue());
+            }
+
+            var outOfRoot = httpClient.send(HttpRequest.newBuilder(new URI(baseUri + "/%2E%2E/secret.txt")).GET().build(), HttpResponse.BodyHandlers.discarding());
+            assertThat(outOfRoot.statusCode()).isEqualTo(404);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void load_test_static_http_file_server_with_virtual_threads() throws Exception {
+        try (var server = MySimpleWebServer.initializeHighThroughputServer(0, 1024, 1024 * 1024)) {
+            var uri = new URI("http://localhost:" + server.getAddress().getPort() + "/index.html");
+            var loadGenerator = new HttpLoadGenerator(HttpClient.newBuilder().build(), uri);
+
+            // 8 clients sending requests back to back
+            var closedLoopReport = loadGenerator.runWithConcurrency(8, Duration.ofMillis(500));
+            System.out.println("Concurrency 8: " + closedLoopReport);
+            assertThat(closedLoopReport.requests()).isPositive();
+            assertThat(closedLoopReport.errors()).isZero();
+            assertThat(closedLoopReport.p50()).isLessThanOrEqualTo(closedLoopReport.p99());
+            assertThat(closedLoopReport.p99()).isLessThanOrEqualTo(closedLoopReport.p999());
+
+            // 200 requests per second, whether the server keeps up or not
+            var openLoopReport = loadGenerator.runAtRate(200, Duration.ofMillis(500));
+            System.out.println("200 req/s: " + openLoopReport);
+            assertThat(openLoopReport.requests()).isEqualTo(100);
+            assertThat(openLoopReport.errors()).isZero();
+
+            for (var requestsPerSecond : List.of(0, -1, 1_000_000_001)) {
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> {
+                            loadGenerator.runAtRate(requestsPerSecond, Duration.ofMillis(500)); // throws exception
+                        }
+                );
+            }
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> {
+                        loadGenerator.runAtRate(200, Duration.ZERO); // throws exception
+                    }
+            );
+        }
+    }
+
 }
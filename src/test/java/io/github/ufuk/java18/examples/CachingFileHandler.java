@@ -0,0 +1,233 @@
+package io.github.ufuk.java18.examples;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * A static file handler for higher loads than SimpleFileServer is meant for:
+ * - hot files are served from memory, the cache is bounded by total bytes and evicts the least recently used files
+ * - responds "304 Not Modified" to If-None-Match/If-Modified-Since requests of unchanged files
+ * - serves "file.gz" instead of "file" if it exists and the client accepts gzip
+ */
+public class CachingFileHandler implements HttpHandler {
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "html", "text/html; charset=UTF-8",
+            "css", "text/css; charset=UTF-8",
+            "js", "text/javascript; charset=UTF-8",
+            "json", "application/json",
+            "txt", "text/plain; charset=UTF-8",
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "svg", "image/svg+xml"
+    );
+
+    private final Path root;
+
+    private final long maxCacheBytes;
+
+    // Access ordered, so iteration starts from the least recently used file
+    private final LinkedHashMap<Path, CachedFile> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedBytes;
+
+    public CachingFileHandler(Path root, long maxCacheBytes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Path file = resolve(exchange.getRequestURI().getPath()); // percent-decoded only, a '+' isn't a space like in forms
+            if (file == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Path gzipFile = file.resolveSibling(file.getFileName() + ".gz");
+            boolean gzip = acceptsGzip(requestHeaders) && Files.isRegularFile(gzipFile);
+            Path servedFile = gzip ? gzipFile : file;
+
+            BasicFileAttributes attributes = Files.readAttributes(servedFile, BasicFileAttributes.class);
+            long lastModifiedSeconds = attributes.lastModifiedTime().toInstant().getEpochSecond();
+            String eTag = "\"" + Long.toHexString(lastModifiedSeconds) + "-" + Long.toHexString(attributes.size()) + (gzip ? "-gz" : "") + "\"";
+
+            Headers responseHeaders = exchange.getResponseHeaders();
+            responseHeaders.set("Content-Type", contentType(file));
+            responseHeaders.set("ETag", eTag);
+            responseHeaders.set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochSecond(lastModifiedSeconds), ZoneOffset.UTC)));
+            responseHeaders.set("Vary", "Accept-Encoding");
+            if (gzip) {
+                responseHeaders.set("Content-Encoding", "gzip");
+            }
+
+            if (notModified(requestHeaders, eTag, lastModifiedSeconds)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            if (method.equals("HEAD")) {
+                responseHeaders.set("Content-Length", Long.toString(attributes.size()));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            byte[] body = cachedContent(servedFile, eTag, attributes.size());
+            if (body != null) {
+                exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+                exchange.getResponseBody().write(body);
+            } else { // too large to cache, streams from the disk
+                exchange.sendResponseHeaders(200, attributes.size() == 0 ? -1 : attributes.size());
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    Files.copy(servedFile, responseBody);
+                }
+            }
+        }
+    }
+
+    public synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    // Returns null for paths out of the root or files which don't exist
+    private Path resolve(String path) {
+        Path file;
+        try {
+            file = root.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+        } catch (InvalidPathException e) { // e.g. a decoded NUL character
+            return null;
+        }
+        if (!file.startsWith(root)) {
+            return null;
+        }
+        if (Files.isDirectory(file)) {
+            file = file.resolve("index.html");
+        }
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private byte[] cachedContent(Path file, String eTag, long size) throws IOException {
+        if (size > maxCacheBytes) {
+            return null;
+        }
+
+        synchronized (this) {
+            CachedFile cachedFile = cache.get(file);
+            if (cachedFile != null && cachedFile.eTag().equals(eTag)) {
+                return cachedFile.content();
+            }
+        }
+
+        // Reads outside of the lock, so slow disks don't block requests of cached files
+        byte[] content = Files.readAllBytes(file);
+
+        synchronized (this) {
+            CachedFile previous = cache.put(file, new CachedFile(content, eTag));
+            if (previous != null) {
+                cachedBytes -= previous.content().length;
+            }
+            cachedBytes += content.length;
+
+            Iterator<CachedFile> leastRecentlyUsed = cache.values().iterator();
+            while (cachedBytes > maxCacheBytes && leastRecentlyUsed.hasNext()) {
+                cachedBytes -= leastRecentlyUsed.next().content().length;
+                leastRecentlyUsed.remove();
+            }
+        }
+        return content;
+    }
+
+    private static boolean notModified(Headers requestHeaders, String eTag, long lastModifiedSeconds) {
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null) { // takes precedence over If-Modified-Since
+            for (String candidate : ifNoneMatch.split(",")) {
+                String trimmed = candidate.strip();
+                if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+                return lastModifiedSeconds <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Accepted if gzip, or else "*", is listed with a quality above 0, e.g. not for "gzip;q=0" or "*, gzip;q=0"
+    private static boolean acceptsGzip(Headers requestHeaders) {
+        List<String> acceptEncodings = requestHeaders.get("Accept-Encoding");
+        if (acceptEncodings == null) {
+            return false;
+        }
+
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        for (String acceptEncoding : acceptEncodings) {
+            for (String element : acceptEncoding.split(",")) {
+                String[] parameters = element.split(";");
+                String coding = parameters[0].strip();
+                double quality = 1;
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i].strip();
+                    if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2).strip());
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                    gzipQuality = quality;
+                } else if (coding.equals("*")) {
+                    anyQuality = quality;
+                }
+            }
+        }
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private static String contentType(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "application/octet-stream" : CONTENT_TYPES.getOrDefault(fileName.substring(dot + 1), "application/octet-stream");
+    }
+
+    private record CachedFile(byte[] content, String eTag) {
+    }
+
+}
@@ -0,0 +1,137 @@
+package io.github.ufuk.java18.examples;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Drives an HTTP server from the same process, each request runs on its own virtual thread:
+ * - closed loop: a fixed number of clients send requests back to back
+ * - open loop: requests are started at a fixed rate, whether previous ones completed or not
+ * In the open loop, latency is measured from the time a request was supposed to start,
+ * so a stalling server is not hidden by the load generator waiting for it (coordinated omission).
+ */
+public class HttpLoadGenerator {
+
+    private final HttpClient httpClient;
+
+    private final HttpRequest httpRequest;
+
+    public HttpLoadGenerator(HttpClient httpClient, URI uri) {
+        this.httpClient = httpClient;
+        this.httpRequest = HttpRequest.newBuilder(uri).GET().build();
+    }
+
+    public LoadReport runWithConcurrency(int concurrency, Duration duration) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        checkDuration(duration);
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                executorService.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        send(System.nanoTime(), histogram, errors);
+                    }
+                });
+            }
+        }
+
+        return new LoadReport(histogram, errors.sum(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // At most one request per nanosecond, the interval between requests is whole nanoseconds
+    public LoadReport runAtRate(int requestsPerSecond, Duration duration) {
+        if (requestsPerSecond < 1 || requestsPerSecond > 1_000_000_000) {
+            throw new IllegalArgumentException("Requests per second must be in 1..1,000,000,000: " + requestsPerSecond);
+        }
+        checkDuration(duration);
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+
+        long intervalNanos = 1_000_000_000L / requestsPerSecond;
+        long requestCount = duration.toNanos() / intervalNanos;
+
+        long start = System.nanoTime();
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requestCount; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long delay = intendedStart - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                executorService.execute(() -> send(intendedStart, histogram, errors));
+            }
+        }
+
+        return new LoadReport(histogram, errors.sum(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // Positive and short enough for a long of nanoseconds, about 292 years
+    private static void checkDuration(Duration duration) {
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(Duration.ofNanos(Long.MAX_VALUE)) > 0) {
+            throw new IllegalArgumentException("Duration must be positive and at most " + Duration.ofNanos(Long.MAX_VALUE) + ": " + duration);
+        }
+    }
+
+    private void send(long startNanos, LatencyHistogram histogram, LongAdder errors) {
+        try {
+            HttpResponse<Void> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+            if (httpResponse.statusCode() >= 400) {
+                errors.increment();
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            errors.increment();
+        }
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    public record LoadReport(LatencyHistogram histogram, long errors, Duration elapsed) {
+
+        public long requests() {
+            return histogram.count();
+        }
+
+        public double throughput() {
+            return requests() * 1_000_000_000.0 / elapsed.toNanos();
+        }
+
+        public double errorRate() {
+            return requests() == 0 ? 0 : (double) errors / requests();
+        }
+
+        public Duration p50() {
+            return Duration.ofNanos(histogram.valueAtPercentile(50));
+        }
+
+        public Duration p99() {
+            return Duration.ofNanos(histogram.valueAtPercentile(99));
+        }
+
+        public Duration p999() {
+            return Duration.ofNanos(histogram.valueAtPercentile(99.9));
+        }
+
+        @Override
+        public String toString() {
+            return "requests=%d, throughput=%.1f req/s, errors=%.2f%%, p50=%.3f ms, p99=%.3f ms, p999=%.3f ms".formatted(
+                    requests(), throughput(), errorRate() * 100, p50().toNanos() / 1e6, p99().toNanos() / 1e6, p999().toNanos() / 1e6);
+        }
+
+    }
+
+}
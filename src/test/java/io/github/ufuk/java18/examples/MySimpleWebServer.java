@@ -6,6 +6,8 @@ import com.sun.net.httpserver.SimpleFileServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MySimpleWebServer {
 
@@ -23,4 +25,46 @@ public class MySimpleWebServer {
         server.start();
     }
 
+    /*
+     * Handles each request on its own virtual thread, instead of the single dispatcher thread.
+     * Headers and body are written separately, so without TCP_NODELAY each response may wait for a delayed ACK (~40 ms).
+     * The JDK reads -Dsun.net.httpserver.nodelay=true once, when the first HttpServer of the JVM is created, so it's up to
+     * the launcher of the JVM to set it (pom.xml does it for the tests), setting it here would depend on what ran before.
+     */
+    public static HighThroughputServer initializeHighThroughputServer(int port, int backlog, long maxCacheBytes) throws IOException {
+        var simpleFileServerPath = Paths.get("src/test/resources/simple-file-server/").toAbsolutePath();
+
+        var handler = new CachingFileHandler(simpleFileServerPath, maxCacheBytes);
+
+        var server = HttpServer.create(new InetSocketAddress(port), backlog, "/", handler);
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+
+        server.start();
+        return new HighThroughputServer(server, executor);
+    }
+
+    // HttpServer.stop doesn't shut its executor down, so the server is stopped together with its executor
+    public record HighThroughputServer(HttpServer server, ExecutorService executor) implements AutoCloseable {
+
+        public InetSocketAddress getAddress() {
+            return server.getAddress();
+        }
+
+        // Waits up to delaySeconds for the exchanges in progress, then for their handlers to return
+        public void stop(int delaySeconds) {
+            try {
+                server.stop(delaySeconds);
+            } finally {
+                executor.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            stop(0);
+        }
+
+    }
+
 }
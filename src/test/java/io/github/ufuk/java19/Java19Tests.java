@@ -2,13 +2,22 @@ package io.github.ufuk.java19;
 
 import io.github.ufuk.java17.examples.Cat;
 import io.github.ufuk.java17.examples.Dog;
+import io.github.ufuk.java19.examples.BoundedVirtualThreadExecutor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 /**
  * Further readings:
@@ -83,7 +92,7 @@ class Java19Tests {
         ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
 
         var threadCount = 250;
-        var setOfThreadIds = new HashSet<Long>();
+        var setOfThreadIds = ConcurrentHashMap.<Long>newKeySet(); // threads add concurrently, a HashSet would lose some of them
 
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
@@ -99,4 +108,89 @@ class Java19Tests {
         Assertions.assertEquals(setOfThreadIds.size(), threadCount);
     }
 
+    @Test
+    void limit_concurrency_of_virtual_threads_to_protect_downstream_resources() throws InterruptedException { // preview in 19, released in Java 21
+        var maxConcurrency = 10;
+        var currentlyRunning = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        var executorService = new BoundedVirtualThreadExecutor(maxConcurrency);
+        try (executorService) {
+            for (int i = 0; i < 250; i++) {
+                executorService.submit(() -> {
+                    maxRunning.accumulateAndGet(currentlyRunning.incrementAndGet(), Math::max);
+                    Thread.sleep(Duration.ofMillis(10)); // e.g. waits for a database connection
+                    currentlyRunning.decrementAndGet();
+                    return null;
+                });
+            }
+
+            // Each task still gets its own virtual thread, but the rest wait for a permit
+            System.out.println("Metrics while running: " + executorService.metrics());
+        } // close() waits for all tasks to complete
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(maxConcurrency);
+        assertThat(executorService.metrics().submitted()).isEqualTo(250);
+        assertThat(executorService.metrics().completed()).isEqualTo(250);
+    }
+
+    @Test
+    void shut_down_virtual_threads_waiting_for_a_permit() throws InterruptedException {
+        var executorService = new BoundedVirtualThreadExecutor(1);
+        var started = new CountDownLatch(1);
+        Future<?> runningTask = executorService.submit(() -> {
+            started.countDown();
+            Thread.sleep(Duration.ofMinutes(1)); // e.g. a slow downstream call
+            return null;
+        });
+        started.await();
+
+        List<Future<?>> waitingTasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            waitingTasks.add(executorService.submit(() -> null));
+        }
+
+        // The waiting ones never started, so they are returned and their futures are cancelled instead of left pending
+        List<Runnable> notStarted = executorService.shutdownNow();
+        executorService.shutdownNow(); // pinning events are closed once, however often it is shut down
+
+        assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(notStarted).containsExactlyInAnyOrderElementsOf(waitingTasks.stream().map(Runnable.class::cast).toList());
+        assertThat(waitingTasks).allMatch(Future::isCancelled);
+        assertThat(runningTask.isDone()).isTrue(); // interrupted
+        assertThat(executorService.metrics().completed()).isEqualTo(1);
+    }
+
+    @Test
+    void count_virtual_threads_pinned_to_their_carriers() throws InterruptedException {
+        var executorService = new BoundedVirtualThreadExecutor(10);
+        try (executorService) {
+            // Even with JEP 491 blocking in a class initializer pins the virtual thread, as there is a native frame
+            executorService.submit(() -> SlowlyInitialized.VALUE);
+            executorService.submit(() -> 42); // doesn't pin
+        }
+
+        // Events are delivered asynchronously, shortly after the tasks complete
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executorService.metrics().pinned() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(executorService.metrics().pinned()).isEqualTo(1);
+    }
+
+    private static final class SlowlyInitialized {
+
+        static final int VALUE;
+
+        static {
+            try {
+                Thread.sleep(Duration.ofMillis(100)); // longer than the 20 ms threshold of the executor
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            VALUE = 42;
+        }
+
+    }
+
 }
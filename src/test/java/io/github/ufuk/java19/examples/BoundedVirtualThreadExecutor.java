@@ -0,0 +1,198 @@
+package io.github.ufuk.java19.examples;
+
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Runs each task on a new virtual thread like Executors.newVirtualThreadPerTaskExecutor, but:
+ * - at most "maxConcurrency" tasks run at once, the others wait for a permit on their (cheap) virtual threads
+ * - counts submitted, running, waiting for a permit, completed and pinned tasks
+ * - shutdownNow() returns the tasks still waiting for a permit, and cancels those which are Futures (e.g. from submit)
+ * Pinning is detected by listening jdk.VirtualThreadPinned JFR events of this executor's threads.
+ * Since Java 24 (JEP 491) synchronized doesn't pin anymore, but native frames and class initializers still do.
+ */
+public class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final AtomicInteger EXECUTOR_COUNTER = new AtomicInteger();
+
+    private final Semaphore permits;
+
+    private final ExecutorService delegate;
+
+    private final String threadNamePrefix;
+
+    private final RecordingStream pinningEvents;
+
+    private final AtomicBoolean pinningEventsClosed = new AtomicBoolean();
+
+    // Tasks not started yet, each is taken once: either by its thread to run it, or by shutdownNow() to return it
+    private final Set<AtomicReference<Runnable>> waiting = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder running = new LongAdder();
+
+    private final LongAdder blockedOnPermit = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder pinned = new LongAdder();
+
+    public BoundedVirtualThreadExecutor(int maxConcurrency) {
+        this(maxConcurrency, Duration.ofMillis(20));
+    }
+
+    // Pinning detection is disabled, if the threshold is null
+    public BoundedVirtualThreadExecutor(int maxConcurrency, Duration pinningThreshold) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        this.threadNamePrefix = "bounded-virtual-" + EXECUTOR_COUNTER.incrementAndGet() + "-";
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+
+        if (pinningThreshold != null) {
+            this.pinningEvents = new RecordingStream();
+            this.pinningEvents.enable("jdk.VirtualThreadPinned").withThreshold(pinningThreshold).withStackTrace();
+            this.pinningEvents.onEvent("jdk.VirtualThreadPinned", event -> {
+                RecordedThread thread = event.getThread();
+                if (thread != null && thread.getJavaName() != null && thread.getJavaName().startsWith(threadNamePrefix)) {
+                    pinned.increment();
+                }
+            });
+            this.pinningEvents.startAsync();
+        } else {
+            this.pinningEvents = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        AtomicReference<Runnable> task = new AtomicReference<>(command);
+        waiting.add(task); // before the delegate accepts it, so shutdownNow() can't miss it
+        submitted.increment();
+        try {
+            delegate.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            waiting.remove(task);
+            throw e;
+        }
+    }
+
+    private void run(AtomicReference<Runnable> task) {
+        blockedOnPermit.increment();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            // Taken by shutdownNow() already, unless interrupted otherwise; a Future is cancelled so it still completes
+            if (take(task) instanceof Future<?> future) {
+                future.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            blockedOnPermit.decrement();
+        }
+
+        Runnable command = take(task);
+        if (command == null) { // taken by shutdownNow()
+            permits.release();
+            return;
+        }
+
+        running.increment();
+        try {
+            command.run();
+        } finally {
+            running.decrement();
+            completed.increment();
+            permits.release();
+        }
+    }
+
+    private Runnable take(AtomicReference<Runnable> task) {
+        waiting.remove(task);
+        return task.getAndSet(null);
+    }
+
+    public Metrics metrics() {
+        return new Metrics(submitted.sum(), running.sum(), blockedOnPermit.sum(), completed.sum(), pinned.sum());
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+        closePinningEvents();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        delegate.shutdown(); // no new tasks, so each accepted one is either started or still in the waiting set
+        List<Runnable> notStarted = new ArrayList<>();
+        for (AtomicReference<Runnable> task : waiting) {
+            Runnable command = take(task);
+            if (command != null) {
+                if (command instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+                notStarted.add(command);
+            }
+        }
+        notStarted.addAll(delegate.shutdownNow()); // interrupts running tasks and the threads of the taken ones
+        closePinningEvents();
+        return notStarted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    // Both shutdown() and shutdownNow() may be called, e.g. by close() and after it, but the stream is closed once
+    private void closePinningEvents() {
+        if (pinningEvents != null && pinningEventsClosed.compareAndSet(false, true)) {
+            // Events of the last tasks may still be on their way, so pinning events are stopped with a grace period
+            Thread.ofVirtual().start(() -> {
+                try {
+                    delegate.awaitTermination(1, TimeUnit.MINUTES);
+                    pinningEvents.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    pinningEvents.close();
+                }
+            });
+        }
+    }
+
+    public record Metrics(long submitted, long running, long blockedOnPermit, long completed, long pinned) {
+    }
+
+}
@@ -0,0 +1,800 @@
+package io.github.ufuk.java21;
+
+import io.github.ufuk.java17.examples.Cat;
+import io.github.ufuk.java17.examples.Dog;
+import io.github.ufuk.java21.examples.ConcurrentLinkedSequencedMap;
+import io.github.ufuk.java21.examples.IntRingDeque;
+import io.github.ufuk.java21.examples.KeywordSearch;
+import io.github.ufuk.java21.examples.RequestContext;
+import io.github.ufuk.java21.examples.TextTemplate;
+import io.github.ufuk.java21.examples.TypeDispatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedCollection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Before/after pairs of {@link Java21Tests}, and pattern matching for switch which was previewed since Java 17.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java21Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java21Benchmarks {
+
+    private static final InheritableThreadLocal<RequestContext> INHERITABLE_CONTEXT = new InheritableThreadLocal<>();
+
+    private static final int SLIDING_WINDOW = 64;
+
+    private static final String TEXT = "My dog's name is Roxy, it is 3 years old Labrador. It is a very playful dog.";
+
+    private static final TextTemplate SHIPPING_MESSAGE = TextTemplate.compile("""
+            Dear ${name},
+            your order ${order} of ${amount} items has been shipped to ${city}.
+            ----------------------------------------
+            Thanks for shopping with us!""");
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    // Not constants, so that concatenation can't fold them into its literals at compile time
+    String name = "Roxy";
+
+    String city = "Istanbul";
+
+    Object[] animals;
+
+    Event[] events;
+
+    TypeDispatcher<Event, String> eventDispatcher;
+
+    List<String> keywords;
+
+    KeywordSearch keywordSearch;
+
+    String longText;
+
+    byte[] longTextInUtf8;
+
+    Map<Integer, Integer> synchronizedLruCache;
+
+    ConcurrentLinkedSequencedMap<Integer, Integer> concurrentLruCache;
+
+    @Setup
+    public void setUp() {
+        int cacheSize = size;
+        synchronizedLruCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        concurrentLruCache = ConcurrentLinkedSequencedMap.lruCache(cacheSize);
+
+        animals = new Object[size];
+        for (int i = 0; i < size; i++) {
+            animals[i] = switch (i % 3) {
+                case 0 -> new Cat("Sıdıka");
+                case 1 -> new Dog("Roxy");
+                default -> "unidentified animal";
+            };
+        }
+
+        // Evenly mixed, in random order, like the events of a bus
+        List<Function<Integer, Event>> eventTypes = List.of(
+                Event00::new,
+                Event01::new,
+                Event02::new,
+                Event03::new,
+                Event04::new,
+                Event05::new,
+                Event06::new,
+                Event07::new,
+                Event08::new,
+                Event09::new,
+                Event10::new,
+                Event11::new,
+                Event12::new,
+                Event13::new,
+                Event14::new,
+                Event15::new,
+                Event16::new,
+                Event17::new,
+                Event18::new,
+                Event19::new,
+                Event20::new,
+                Event21::new,
+                Event22::new,
+                Event23::new,
+                Event24::new,
+                Event25::new,
+                Event26::new,
+                Event27::new,
+                Event28::new,
+                Event29::new,
+                Event30::new,
+                Event31::new,
+                Event32::new,
+                Event33::new,
+                Event34::new,
+                Event35::new,
+                Event36::new,
+                Event37::new,
+                Event38::new,
+                Event39::new,
+                Event40::new,
+                Event41::new,
+                Event42::new,
+                Event43::new,
+                Event44::new,
+                Event45::new,
+                Event46::new,
+                Event47::new,
+                Event48::new,
+                Event49::new,
+                Event50::new,
+                Event51::new,
+                Event52::new,
+                Event53::new,
+                Event54::new,
+                Event55::new,
+                Event56::new,
+                Event57::new,
+                Event58::new,
+                Event59::new,
+                Event60::new,
+                Event61::new,
+                Event62::new,
+                Event63::new
+        );
+        events = new Event[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = eventTypes.get(ThreadLocalRandom.current().nextInt(eventTypes.size())).apply(i);
+        }
+        eventDispatcher = TypeDispatcher.<Event, String>builder()
+                .on(Event00.class, _ -> "handled by 0")
+                .on(Event01.class, _ -> "handled by 1")
+                .on(Event02.class, _ -> "handled by 2")
+                .on(Event03.class, _ -> "handled by 3")
+                .on(Event04.class, _ -> "handled by 4")
+                .on(Event05.class, _ -> "handled by 5")
+                .on(Event06.class, _ -> "handled by 6")
+                .on(Event07.class, _ -> "handled by 7")
+                .on(Event08.class, _ -> "handled by 8")
+                .on(Event09.class, _ -> "handled by 9")
+                .on(Event10.class, _ -> "handled by 10")
+                .on(Event11.class, _ -> "handled by 11")
+                .on(Event12.class, _ -> "handled by 12")
+                .on(Event13.class, _ -> "handled by 13")
+                .on(Event14.class, _ -> "handled by 14")
+                .on(Event15.class, _ -> "handled by 15")
+                .on(Event16.class, _ -> "handled by 16")
+                .on(Event17.class, _ -> "handled by 17")
+                .on(Event18.class, _ -> "handled by 18")
+                .on(Event19.class, _ -> "handled by 19")
+                .on(Event20.class, _ -> "handled by 20")
+                .on(Event21.class, _ -> "handled by 21")
+                .on(Event22.class, _ -> "handled by 22")
+                .on(Event23.class, _ -> "handled by 23")
+                .on(Event24.class, _ -> "handled by 24")
+                .on(Event25.class, _ -> "handled by 25")
+                .on(Event26.class, _ -> "handled by 26")
+                .on(Event27.class, _ -> "handled by 27")
+                .on(Event28.class, _ -> "handled by 28")
+                .on(Event29.class, _ -> "handled by 29")
+                .on(Event30.class, _ -> "handled by 30")
+                .on(Event31.class, _ -> "handled by 31")
+                .on(Event32.class, _ -> "handled by 32")
+                .on(Event33.class, _ -> "handled by 33")
+                .on(Event34.class, _ -> "handled by 34")
+                .on(Event35.class, _ -> "handled by 35")
+                .on(Event36.class, _ -> "handled by 36")
+                .on(Event37.class, _ -> "handled by 37")
+                .on(Event38.class, _ -> "handled by 38")
+                .on(Event39.class, _ -> "handled by 39")
+                .on(Event40.class, _ -> "handled by 40")
+                .on(Event41.class, _ -> "handled by 41")
+                .on(Event42.class, _ -> "handled by 42")
+                .on(Event43.class, _ -> "handled by 43")
+                .on(Event44.class, _ -> "handled by 44")
+                .on(Event45.class, _ -> "handled by 45")
+                .on(Event46.class, _ -> "handled by 46")
+                .on(Event47.class, _ -> "handled by 47")
+                .on(Event48.class, _ -> "handled by 48")
+                .on(Event49.class, _ -> "handled by 49")
+                .on(Event50.class, _ -> "handled by 50")
+                .on(Event51.class, _ -> "handled by 51")
+                .on(Event52.class, _ -> "handled by 52")
+                .on(Event53.class, _ -> "handled by 53")
+                .on(Event54.class, _ -> "handled by 54")
+                .on(Event55.class, _ -> "handled by 55")
+                .on(Event56.class, _ -> "handled by 56")
+                .on(Event57.class, _ -> "handled by 57")
+                .on(Event58.class, _ -> "handled by 58")
+                .on(Event59.class, _ -> "handled by 59")
+                .on(Event60.class, _ -> "handled by 60")
+                .on(Event61.class, _ -> "handled by 61")
+                .on(Event62.class, _ -> "handled by 62")
+                .on(Event63.class, _ -> "handled by 63")
+                .requireExhaustive(Event.class)
+                .build();
+
+        // "size" keywords, searched in a 16K text of random words, a few percent of them are keywords
+        keywords = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            keywords.add("keyword" + i);
+        }
+        keywordSearch = KeywordSearch.compile(keywords);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 16 * 1024) {
+            int word = ThreadLocalRandom.current().nextInt(size * 20);
+            text.append(word < size ? "keyword" : "word").append(word).append(' ');
+        }
+        longText = text.toString();
+        longTextInUtf8 = longText.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String string_builder_append_loop_before() {
+        StringBuilder builder = new StringBuilder().append("I like to");
+        for (int i = 0; i < size; i++) {
+            builder.append(" move it");
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public String string_builder_repeat_after() {
+        return new StringBuilder()
+                .append("I like to")
+                .repeat(" move it", size)
+                .toString();
+    }
+
+    // Renders "size" messages, each with its own values
+
+    @Benchmark
+    public void render_message_with_concatenation_before(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume("Dear " + name + ",\nyour order " + i + " of " + (i % 10) + " items has been shipped to " + city + ".\n"
+                    + "----------------------------------------\n"
+                    + "Thanks for shopping with us!");
+        }
+    }
+
+    @Benchmark
+    public void render_message_with_string_builder_chain_before(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(new StringBuilder()
+                    .append("Dear ").append(name).append(",\n")
+                    .append("your order ").append(i).append(" of ").append(i % 10).append(" items has been shipped to ").append(city).append(".\n")
+                    .repeat("-", 40).append("\n")
+                    .append("Thanks for shopping with us!")
+                    .toString());
+        }
+    }
+
+    @Benchmark
+    public void render_message_with_precompiled_template_after(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(SHIPPING_MESSAGE.render(name, i, i % 10, city));
+        }
+    }
+
+    @Benchmark
+    public void encode_message_with_precompiled_template_into_utf8_buffer_after(Blackhole blackhole) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (int i = 0; i < size; i++) {
+            SHIPPING_MESSAGE.encode(buffer.clear(), name, i, i % 10, city);
+            blackhole.consume(buffer.position());
+        }
+    }
+
+    @Benchmark
+    public void substring_then_index_of_before(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            int index = TEXT.substring(20, 30).indexOf("is");
+            blackhole.consume(index < 0 ? index : index + 20);
+        }
+    }
+
+    @Benchmark
+    public void index_of_in_range_after(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(TEXT.indexOf("is", 20, 30));
+        }
+    }
+
+    @Benchmark
+    public void instanceof_chain_before(Blackhole blackhole) {
+        for (Object animal : animals) {
+            String name;
+            if (animal instanceof Cat) {
+                name = ((Cat) animal).name() + " the cat";
+            } else if (animal instanceof Dog) {
+                name = ((Dog) animal).name() + " the dog";
+            } else {
+                name = "unidentified animal";
+            }
+            blackhole.consume(name);
+        }
+    }
+
+    @Benchmark
+    public void pattern_matching_for_switch_after(Blackhole blackhole) {
+        for (Object animal : animals) {
+            String name = switch (animal) {
+                case Cat(String catName) -> catName + " the cat";
+                case Dog(String dogName) -> dogName + " the dog";
+                default -> "unidentified animal";
+            };
+            blackhole.consume(name);
+        }
+    }
+
+    // Events of 64 types: a switch checks the cases one after the other, the dispatcher looks the class up once
+
+    @Benchmark
+    public void long_pattern_switch_over_many_types_before(Blackhole blackhole) {
+        for (Event event : events) {
+            String handled = switch (event) {
+                case Event00 _ -> "handled by 0";
+                case Event01 _ -> "handled by 1";
+                case Event02 _ -> "handled by 2";
+                case Event03 _ -> "handled by 3";
+                case Event04 _ -> "handled by 4";
+                case Event05 _ -> "handled by 5";
+                case Event06 _ -> "handled by 6";
+                case Event07 _ -> "handled by 7";
+                case Event08 _ -> "handled by 8";
+                case Event09 _ -> "handled by 9";
+                case Event10 _ -> "handled by 10";
+                case Event11 _ -> "handled by 11";
+                case Event12 _ -> "handled by 12";
+                case Event13 _ -> "handled by 13";
+                case Event14 _ -> "handled by 14";
+                case Event15 _ -> "handled by 15";
+                case Event16 _ -> "handled by 16";
+                case Event17 _ -> "handled by 17";
+                case Event18 _ -> "handled by 18";
+                case Event19 _ -> "handled by 19";
+                case Event20 _ -> "handled by 20";
+                case Event21 _ -> "handled by 21";
+                case Event22 _ -> "handled by 22";
+                case Event23 _ -> "handled by 23";
+                case Event24 _ -> "handled by 24";
+                case Event25 _ -> "handled by 25";
+                case Event26 _ -> "handled by 26";
+                case Event27 _ -> "handled by 27";
+                case Event28 _ -> "handled by 28";
+                case Event29 _ -> "handled by 29";
+                case Event30 _ -> "handled by 30";
+                case Event31 _ -> "handled by 31";
+                case Event32 _ -> "handled by 32";
+                case Event33 _ -> "handled by 33";
+                case Event34 _ -> "handled by 34";
+                case Event35 _ -> "handled by 35";
+                case Event36 _ -> "handled by 36";
+                case Event37 _ -> "handled by 37";
+                case Event38 _ -> "handled by 38";
+                case Event39 _ -> "handled by 39";
+                case Event40 _ -> "handled by 40";
+                case Event41 _ -> "handled by 41";
+                case Event42 _ -> "handled by 42";
+                case Event43 _ -> "handled by 43";
+                case Event44 _ -> "handled by 44";
+                case Event45 _ -> "handled by 45";
+                case Event46 _ -> "handled by 46";
+                case Event47 _ -> "handled by 47";
+                case Event48 _ -> "handled by 48";
+                case Event49 _ -> "handled by 49";
+                case Event50 _ -> "handled by 50";
+                case Event51 _ -> "handled by 51";
+                case Event52 _ -> "handled by 52";
+                case Event53 _ -> "handled by 53";
+                case Event54 _ -> "handled by 54";
+                case Event55 _ -> "handled by 55";
+                case Event56 _ -> "handled by 56";
+                case Event57 _ -> "handled by 57";
+                case Event58 _ -> "handled by 58";
+                case Event59 _ -> "handled by 59";
+                case Event60 _ -> "handled by 60";
+                case Event61 _ -> "handled by 61";
+                case Event62 _ -> "handled by 62";
+                case Event63 _ -> "handled by 63";
+            };
+            blackhole.consume(handled);
+        }
+    }
+
+    @Benchmark
+    public void class_value_type_dispatcher_over_many_types_after(Blackhole blackhole) {
+        for (Event event : events) {
+            blackhole.consume(eventDispatcher.dispatch(event));
+        }
+    }
+
+    // Throughput of index_of_in_range_for_each_keyword_before falls with the number of keywords, the other two don't
+
+    @Benchmark
+    public int index_of_in_range_for_each_keyword_before() {
+        int matches = 0;
+        int to = longText.length() / 2;
+        for (String keyword : keywords) {
+            for (int index = longText.indexOf(keyword, 0, to); index >= 0; index = longText.indexOf(keyword, index + 1, to)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int keyword_search_in_range_of_chars_after() {
+        int[] matches = new int[1];
+        keywordSearch.findAll(longText, 0, longText.length() / 2, (keyword, start, end) -> matches[0]++);
+        return matches[0];
+    }
+
+    @Benchmark
+    public int keyword_search_in_range_of_utf8_bytes_after() {
+        int[] matches = new int[1];
+        keywordSearch.findAll(longTextInUtf8, 0, longTextInUtf8.length / 2, (keyword, start, end) -> matches[0]++);
+        return matches[0];
+    }
+
+    // Binds a request context, then looks it up "size" times, like the layers of a request handler would do
+
+    @Benchmark
+    public int inheritable_thread_local_context_before() {
+        INHERITABLE_CONTEXT.set(new RequestContext("trace-1", "tenant-1", Instant.MAX, "user1"));
+        try {
+            return lookUpInheritableContext();
+        } finally {
+            INHERITABLE_CONTEXT.remove();
+        }
+    }
+
+    @Benchmark
+    public int scoped_value_context_after() throws Exception {
+        return RequestContext.callWith(new RequestContext("trace-1", "tenant-1", Instant.MAX, "user1"), this::lookUpScopedContext);
+    }
+
+    // Same, but the lookups run on a child virtual thread: InheritableThreadLocal copies its map into each child thread
+
+    @Benchmark
+    public int inheritable_thread_local_context_in_virtual_thread_before() throws InterruptedException {
+        INHERITABLE_CONTEXT.set(new RequestContext("trace-1", "tenant-1", Instant.MAX, "user1"));
+        try {
+            int[] result = new int[1];
+            Thread.startVirtualThread(() -> result[0] = lookUpInheritableContext()).join();
+            return result[0];
+        } finally {
+            INHERITABLE_CONTEXT.remove();
+        }
+    }
+
+    @Benchmark
+    public int scoped_value_context_in_virtual_thread_after() throws Exception {
+        return RequestContext.callWith(new RequestContext("trace-1", "tenant-1", Instant.MAX, "user1"), () -> {
+            int[] result = new int[1];
+            Thread.startVirtualThread(RequestContext.wrap(() -> result[0] = lookUpScopedContext())).join();
+            return result[0];
+        });
+    }
+
+    private int lookUpInheritableContext() {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += INHERITABLE_CONTEXT.get().traceId().length();
+        }
+        return length;
+    }
+
+    private int lookUpScopedContext() {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += RequestContext.current().traceId().length();
+        }
+        return length;
+    }
+
+    // With -prof gc, gc.alloc.rate.norm of the fill_* benchmarks is the footprint of size elements (plus growth garbage)
+
+    @Benchmark
+    public SequencedCollection<Integer> fill_array_list_before() {
+        return fill(new ArrayList<>());
+    }
+
+    @Benchmark
+    public SequencedCollection<Integer> fill_linked_list_before() {
+        return fill(new LinkedList<>());
+    }
+
+    @Benchmark
+    public SequencedCollection<Integer> fill_linked_hash_set_before() {
+        return fill(new LinkedHashSet<>());
+    }
+
+    @Benchmark
+    public IntRingDeque fill_int_ring_deque_after() {
+        IntRingDeque deque = new IntRingDeque();
+        for (int i = 0; i < size; i++) {
+            deque.addLastInt(i);
+        }
+        return deque;
+    }
+
+    @Benchmark
+    public long sliding_window_of_array_list_before() {
+        return slide(new ArrayList<>());
+    }
+
+    @Benchmark
+    public long sliding_window_of_linked_list_before() {
+        return slide(new LinkedList<>());
+    }
+
+    @Benchmark
+    public long sliding_window_of_linked_hash_set_before() {
+        return slide(new LinkedHashSet<>());
+    }
+
+    @Benchmark
+    public long sliding_window_of_int_ring_deque_after() {
+        IntRingDeque window = new IntRingDeque(SLIDING_WINDOW);
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            window.addLastInt(i);
+            if (window.size() > SLIDING_WINDOW) {
+                sum += window.removeFirstInt();
+            }
+        }
+        return sum;
+    }
+
+    private SequencedCollection<Integer> fill(SequencedCollection<Integer> collection) {
+        for (int i = 0; i < size; i++) {
+            collection.addLast(i);
+        }
+        return collection;
+    }
+
+    private long slide(SequencedCollection<Integer> window) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            window.addLast(i);
+            if (window.size() > SLIDING_WINDOW) {
+                sum += window.removeFirst();
+            }
+        }
+        return sum;
+    }
+
+    // Mostly hits, keys are drawn from 1.25 times the capacity of the caches
+
+    @Benchmark
+    @Threads(4)
+    public Integer lru_cache_with_synchronized_linked_hash_map_before() {
+        int key = ThreadLocalRandom.current().nextInt(size + size / 4);
+        return synchronizedLruCache.computeIfAbsent(key, k -> k);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer lru_cache_with_concurrent_sequenced_map_after() {
+        int key = ThreadLocalRandom.current().nextInt(size + size / 4);
+        return concurrentLruCache.computeIfAbsent(key, k -> k);
+    }
+
+    sealed interface Event {
+    }
+
+    record Event00(int id) implements Event {
+    }
+
+    record Event01(int id) implements Event {
+    }
+
+    record Event02(int id) implements Event {
+    }
+
+    record Event03(int id) implements Event {
+    }
+
+    record Event04(int id) implements Event {
+    }
+
+    record Event05(int id) implements Event {
+    }
+
+    record Event06(int id) implements Event {
+    }
+
+    record Event07(int id) implements Event {
+    }
+
+    record Event08(int id) implements Event {
+    }
+
+    record Event09(int id) implements Event {
+    }
+
+    record Event10(int id) implements Event {
+    }
+
+    record Event11(int id) implements Event {
+    }
+
+    record Event12(int id) implements Event {
+    }
+
+    record Event13(int id) implements Event {
+    }
+
+    record Event14(int id) implements Event {
+    }
+
+    record Event15(int id) implements Event {
+    }
+
+    record Event16(int id) implements Event {
+    }
+
+    record Event17(int id) implements Event {
+    }
+
+    record Event18(int id) implements Event {
+    }
+
+    record Event19(int id) implements Event {
+    }
+
+    record Event20(int id) implements Event {
+    }
+
+    record Event21(int id) implements Event {
+    }
+
+    record Event22(int id) implements Event {
+    }
+
+    record Event23(int id) implements Event {
+    }
+
+    record Event24(int id) implements Event {
+    }
+
+    record Event25(int id) implements Event {
+    }
+
+    record Event26(int id) implements Event {
+    }
+
+    record Event27(int id) implements Event {
+    }
+
+    record Event28(int id) implements Event {
+    }
+
+    record Event29(int id) implements Event {
+    }
+
+    record Event30(int id) implements Event {
+    }
+
+    record Event31(int id) implements Event {
+    }
+
+    record Event32(int id) implements Event {
+    }
+
+    record Event33(int id) implements Event {
+    }
+
+    record Event34(int id) implements Event {
+    }
+
+    record Event35(int id) implements Event {
+    }
+
+    record Event36(int id) implements Event {
+    }
+
+    record Event37(int id) implements Event {
+    }
+
+    record Event38(int id) implements Event {
+    }
+
+    record Event39(int id) implements Event {
+    }
+
+    record Event40(int id) implements Event {
+    }
+
+    record Event41(int id) implements Event {
+    }
+
+    record Event42(int id) implements Event {
+    }
+
+    record Event43(int id) implements Event {
+    }
+
+    record Event44(int id) implements Event {
+    }
+
+    record Event45(int id) implements Event {
+    }
+
+    record Event46(int id) implements Event {
+    }
+
+    record Event47(int id) implements Event {
+    }
+
+    record Event48(int id) implements Event {
+    }
+
+    record Event49(int id) implements Event {
+    }
+
+    record Event50(int id) implements Event {
+    }
+
+    record Event51(int id) implements Event {
+    }
+
+    record Event52(int id) implements Event {
+    }
+
+    record Event53(int id) implements Event {
+    }
+
+    record Event54(int id) implements Event {
+    }
+
+    record Event55(int id) implements Event {
+    }
+
+    record Event56(int id) implements Event {
+    }
+
+    record Event57(int id) implements Event {
+    }
+
+    record Event58(int id) implements Event {
+    }
+
+    record Event59(int id) implements Event {
+    }
+
+    record Event60(int id) implements Event {
+    }
+
+    record Event61(int id) implements Event {
+    }
+
+    record Event62(int id) implements Event {
+    }
+
+    record Event63(int id) implements Event {
+    }
+
+}
@@ -1,17 +1,35 @@
 package io.github.ufuk.java21;
 
+import io.github.ufuk.java17.examples.Cat;
+import io.github.ufuk.java17.examples.Dog;
+import io.github.ufuk.java21.examples.ConcurrentLinkedSequencedMap;
+import io.github.ufuk.java21.examples.IntRingDeque;
+import io.github.ufuk.java21.examples.KeywordSearch;
+import io.github.ufuk.java21.examples.RequestContext;
+import io.github.ufuk.java21.examples.ScatterGather;
+import io.github.ufuk.java21.examples.TextTemplate;
+import io.github.ufuk.java21.examples.TypeDispatcher;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Further readings:
@@ -57,7 +75,8 @@ class Java21Tests {
         return Stream.of(
                 Arguments.of(new ArrayList<>(List.of(1))),
                 Arguments.of(new LinkedList<>(List.of(1))),
-                Arguments.of(new LinkedHashSet<>(List.of(1)))
+                Arguments.of(new LinkedHashSet<>(List.of(1))),
+                Arguments.of(IntRingDeque.of(1))
                 /*
                 This is also SequencedCollection, but it does not support first/last item modification
                 // Arguments.of(new TreeSet<>(List.of(1)))
@@ -111,9 +130,108 @@ class Java21Tests {
         assertThat(sequencedMap.sequencedEntrySet()).hasSize(1).containsSequence(Map.entry("one", 1));
     }
 
+    @Test
+    void concurrent_sequenced_map_as_a_shared_lru_cache() throws Exception {
+        // least recently used entry is evicted first
+        ConcurrentLinkedSequencedMap<String, Integer> cache = ConcurrentLinkedSequencedMap.lruCache(3);
+        cache.put("one", 1);
+        cache.put("two", 2);
+        cache.put("three", 3);
+        cache.get("one");
+        cache.put("four", 4);
+        assertThat(cache.sequencedKeySet()).containsExactly("three", "one", "four");
+        assertThat(cache.evictionCount()).isEqualTo(1);
+
+        // bounded by weight instead of count
+        ConcurrentLinkedSequencedMap<String, String> weighted = new ConcurrentLinkedSequencedMap<>(false, 10, (key, value) -> value.length());
+        weighted.put("a", "12345");
+        weighted.putFirst("b", "1234");
+        weighted.putLast("c", "123");
+        assertThat(weighted.sequencedKeySet()).containsExactly("a", "c");
+
+        // same order for all threads, no entry is lost or duplicated under contention
+        ConcurrentLinkedSequencedMap<Integer, Integer> shared = ConcurrentLinkedSequencedMap.lruCache(100);
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                tasks.add(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50_000; i++) {
+                        int key = random.nextInt(300);
+                        switch (random.nextInt(6)) {
+                            case 0 -> shared.putFirst(key, key);
+                            case 1 -> shared.putLast(key, key);
+                            case 2 -> shared.pollFirstEntry();
+                            case 3 -> shared.pollLastEntry();
+                            default -> assertThat(shared.computeIfAbsent(key, k -> k)).isEqualTo(key);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+        List<Integer> keys = new ArrayList<>(shared.sequencedKeySet());
+        assertThat(keys).hasSize(shared.size()).doesNotHaveDuplicates().allSatisfy(key -> assertThat(shared.get(key)).isEqualTo(key));
+        assertThat(shared.size()).isLessThanOrEqualTo(100);
+        assertThat(shared.reversed().sequencedKeySet()).containsExactlyElementsOf(keys.reversed());
+    }
+
+    @Test
+    void sequenced_collection_of_primitive_ints() {
+        IntRingDeque deque = new IntRingDeque(4);
+
+        // unboxed access to both ends, the array wraps around and grows when full
+        for (int i = 0; i < 10; i++) {
+            deque.addLastInt(i);
+            deque.addFirstInt(-i);
+        }
+        assertThat(deque.getFirstInt()).isEqualTo(-9);
+        assertThat(deque.getLastInt()).isEqualTo(9);
+        assertThat(deque.removeFirstInt()).isEqualTo(-9);
+        assertThat(deque.removeLastInt()).isEqualTo(9);
+        assertThat(deque.getInt(0)).isEqualTo(-8);
+        assertThat(deque.toIntArray()).containsExactly(-8, -7, -6, -5, -4, -3, -2, -1, 0, 0, 1, 2, 3, 4, 5, 6, 7, 8);
+
+        // reversed view and iterator removal
+        assertThat(deque.reversed().getFirst()).isEqualTo(8);
+        deque.reversed().addFirst(100);
+        assertThat(deque.getLastInt()).isEqualTo(100);
+        deque.removeIf(value -> value % 2 != 0);
+        assertThat(deque.toIntArray()).containsExactly(-8, -6, -4, -2, 0, 0, 2, 4, 6, 8, 100);
+        assertThat(deque.reversed()).containsExactly(100, 8, 6, 4, 2, 0, 0, -2, -4, -6, -8);
+        assertThrows(ConcurrentModificationException.class, () -> deque.forEach(value -> deque.addLastInt(value)));
+
+        // same behavior as ArrayDeque for a random mix of operations
+        IntRingDeque actual = new IntRingDeque();
+        ArrayDeque<Integer> expected = new ArrayDeque<>();
+        Random random = new Random(21);
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt();
+            switch (expected.isEmpty() ? random.nextInt(2) : random.nextInt(4)) {
+                case 0 -> {
+                    actual.addFirstInt(value);
+                    expected.addFirst(value);
+                }
+                case 1 -> {
+                    actual.addLastInt(value);
+                    expected.addLast(value);
+                }
+                case 2 -> assertThat(actual.removeFirstInt()).isEqualTo(expected.removeFirst());
+                default -> assertThat(actual.removeLastInt()).isEqualTo(expected.removeLast());
+            }
+        }
+        assertThat(actual).hasSize(expected.size()).containsExactlyElementsOf(expected);
+        assertThrows(NoSuchElementException.class, () -> new IntRingDeque().removeFirstInt());
+    }
+
     static Stream<Arguments> provideSequencedMaps() {
         return Stream.of(
-                Arguments.of(new LinkedHashMap<>(Map.of("one", 1)))
+                Arguments.of(new LinkedHashMap<>(Map.of("one", 1))),
+                Arguments.of(new ConcurrentLinkedSequencedMap<>(Map.of("one", 1)))
                 /*
                 These are also SequencedMap, but they do not support first/last entry modification
                 // Arguments.of(new ConcurrentSkipListMap<>(Map.of("one", 1))),
@@ -140,6 +258,62 @@ class Java21Tests {
         assertThat(resultIndex).isEqualTo(27);
     }
 
+    @Test
+    void search_many_keywords_at_once_in_range() {
+        String text = "My dog's name is Roxy, it is 3 years old Labrador. It is a very playful dog.";
+
+        // Compiled once, then each search is a single pass whatever the number of keywords, overlapping matches included
+        KeywordSearch search = KeywordSearch.compile(List.of("is", "dog", "Roxy", "s n", "t i"));
+        List<KeywordSearch.Match> matches = search.findAll(text, 20, 30);
+
+        assertThat(matches).containsExactly(
+                new KeywordSearch.Match(4, 24, 27), // "t i"
+                new KeywordSearch.Match(0, 26, 28) // "is", same as text.indexOf("is", 20, 30)
+        );
+
+        // Keywords starting with few distinct bytes are looked for 8 bytes at a time in UTF-8 input
+        assertThat(KeywordSearch.compile(List.of("dog", "Roxy")).findAll(text.getBytes(StandardCharsets.UTF_8), 4, 76)).containsExactly(
+                new KeywordSearch.Match(1, 17, 21),
+                new KeywordSearch.Match(0, 72, 75)
+        );
+
+        // Same matches as indexOf for each keyword, on chars and on UTF-8 bytes, in any window
+        List<String> keywords = List.of("he", "she", "his", "hers", "ş", "şiş", "🐈", "kedi🐈", "a", "aa", "aaa");
+        KeywordSearch manyKeywords = KeywordSearch.compile(keywords);
+        Random random = new Random(24);
+        String alphabet = "ahesirkdş🐈\uD800";
+        for (int round = 0; round < 200; round++) {
+            StringBuilder randomText = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                randomText.appendCodePoint(alphabet.codePointAt(alphabet.offsetByCodePoints(0, random.nextInt(alphabet.codePointCount(0, alphabet.length())))));
+            }
+            String haystack = randomText.toString();
+            int from = random.nextInt(haystack.length());
+            int to = from + random.nextInt(haystack.length() - from + 1);
+
+            Set<KeywordSearch.Match> expected = new HashSet<>();
+            for (int k = 0; k < keywords.size(); k++) {
+                String keyword = keywords.get(k);
+                for (int index = haystack.indexOf(keyword, from, to); index >= 0; index = haystack.indexOf(keyword, index + 1, to)) {
+                    if (index + keyword.length() <= to) {
+                        expected.add(new KeywordSearch.Match(k, index, index + keyword.length()));
+                    }
+                }
+            }
+            assertThat(manyKeywords.findAll(haystack, from, to)).containsExactlyInAnyOrderElementsOf(expected);
+
+            // On bytes, only texts without lone surrogates, which have no UTF-8 encoding
+            String wellFormed = haystack.replace("\uD800", "?");
+            byte[] utf8 = wellFormed.getBytes(StandardCharsets.UTF_8);
+            List<KeywordSearch.Match> inChars = manyKeywords.findAll(wellFormed, 0, wellFormed.length());
+            List<KeywordSearch.Match> inBytes = manyKeywords.findAll(utf8, 0, utf8.length);
+            assertThat(inBytes).hasSameSizeAs(inChars);
+            for (KeywordSearch.Match match : inBytes) {
+                assertThat(new String(utf8, match.start(), match.end() - match.start(), StandardCharsets.UTF_8)).isEqualTo(keywords.get(match.keyword()));
+            }
+        }
+    }
+
     @Test
     void repeat_method_for_string_builder_and_string_buffer() {
         String text = new StringBuilder()
@@ -154,6 +328,70 @@ class Java21Tests {
                 Ya like to (move it!)""");
     }
 
+    @Test
+    void render_text_blocks_with_precompiled_templates() {
+        // Parsed once, like the withdrawn STR."My dog's name is \{name}..." was compiled, then rendered many times
+        TextTemplate template = TextTemplate.compile("""
+                My dog's name is ${name}, it is ${age} years old ${breed}.
+                ${name} costs $${price} per ${period}, {"key": "value"} stays as is.""");
+
+        assertThat(template.slotNames()).containsExactly("name", "age", "breed", "period");
+        assertThat(template.render("Roxy", 3, "Labrador", "month")).isEqualTo("""
+                My dog's name is Roxy, it is 3 years old Labrador.
+                Roxy costs ${price} per month, {"key": "value"} stays as is.""");
+
+        // Into a builder which already has content, or straight into UTF-8 bytes
+        StringBuilder builder = new StringBuilder("> ");
+        template.render(builder, "Sıdıka", 5L, null, new StringBuilder("day"));
+        assertThat(builder).hasToString("""
+                > My dog's name is Sıdıka, it is 5 years old null.
+                Sıdıka costs ${price} per day, {"key": "value"} stays as is.""");
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        template.encode(buffer, "Sıdıka", 5L, null, "day");
+        assertThat(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8)).isEqualTo(builder.substring(2));
+
+        // Direct buffers are written in place, with the same bytes as String.getBytes, even for unpaired surrogates
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(256);
+        for (Object[] values : new Object[][]{
+                {"Sıdıka", 5L, null, "day"},
+                {"Roxy \uD83D\uDC36", Long.MIN_VALUE, "€ \uD83D", "night"},
+                {"", Integer.MIN_VALUE, Long.MAX_VALUE, new StringBuilder("\uDC36 ")},
+                {"Roxy", 0, -99, 100}
+        }) {
+            byte[] expected = template.render(values).getBytes(StandardCharsets.UTF_8);
+            template.encode(directBuffer.clear(), values);
+            byte[] actual = new byte[directBuffer.flip().remaining()];
+            directBuffer.get(actual);
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        ByteBuffer tooSmall = ByteBuffer.allocate(16);
+        assertThrows(
+                BufferOverflowException.class,
+                () -> {
+                    template.encode(tooSmall, "Roxy", 3, "Labrador", "month"); // throws exception
+                }
+        );
+        assertThat(tooSmall.position()).isZero();
+
+        ByteBuffer tooSmallDirect = ByteBuffer.allocateDirect(80);
+        assertThrows(
+                BufferOverflowException.class,
+                () -> {
+                    template.encode(tooSmallDirect, "Roxy", Long.MIN_VALUE, "Labrador", "month"); // throws exception
+                }
+        );
+        assertThat(tooSmallDirect.position()).isZero();
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> {
+                    template.render("Roxy", 3); // throws exception, a value per name is expected
+                }
+        );
+    }
+
     @Test
     void squeeze_values_between_two_values() {
         int cannotLessThan5 = Math.clamp(4, 5, 10);
@@ -237,6 +475,38 @@ class Java21Tests {
         System.out.println("Username inside the scope (from another method): " + username);
     }
 
+    @Test
+    void scoped_values_flow_into_forked_subtasks_and_wrapped_virtual_threads() throws Exception { // preview in Java 21, released in Java ?
+        var context = new RequestContext("trace-1", "tenant-1", Instant.now().plusSeconds(5), "user1");
+
+        RequestContext.runWith(context, () -> {
+            // Subtasks inherit the bindings of the scope owner, nothing is copied
+            try (var structuredTaskScope = new StructuredTaskScope.ShutdownOnFailure()) {
+                var subTask = structuredTaskScope.fork(() -> RequestContext.current().traceId());
+
+                structuredTaskScope.join();
+
+                assertThat(subTask.get()).isEqualTo("trace-1");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // Threads started outside a scope need the context to be passed explicitly
+            var tenantSeenByVirtualThread = new AtomicReference<String>();
+            var virtualThread = Thread.startVirtualThread(RequestContext.wrap(() -> tenantSeenByVirtualThread.set(RequestContext.current().tenant())));
+            try {
+                virtualThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            assertThat(tenantSeenByVirtualThread.get()).isEqualTo("tenant-1");
+        });
+
+        // Unbound after the request
+        assertThat(RequestContext.find()).isEmpty();
+    }
+
     @Test
     void structured_concurrency_when_all_tasks_successfully_completed() throws Exception { // preview in Java 21, released in Java ?
         try (var structuredTaskScope = new StructuredTaskScope<String>()) {
@@ -354,6 +624,68 @@ class Java21Tests {
         }
     }
 
+    @Test
+    void structured_concurrency_with_deadline() { // preview in Java 21, released in Java ?
+        var scatterGather = new ScatterGather(95, Duration.ofMillis(50));
+
+        SequencedMap<String, Callable<String>> tasks = new LinkedHashMap<>();
+        tasks.put("fast", () -> "Result 1");
+        tasks.put("slow", () -> {
+            Thread.sleep(Duration.ofSeconds(10));
+            return "Result 2";
+        });
+
+        // Slow task is cancelled when the deadline is reached, instead of waiting for 10 seconds
+        assertThrows(
+                TimeoutException.class,
+                () -> scatterGather.all(tasks, Instant.now().plusMillis(200))
+        );
+    }
+
+    @Test
+    void structured_concurrency_with_quorum_of_successful_tasks() throws Exception { // preview in Java 21, released in Java ?
+        var scatterGather = new ScatterGather(95, Duration.ofMillis(50));
+
+        SequencedMap<String, Callable<String>> replicas = new LinkedHashMap<>();
+        replicas.put("replica 1", () -> "Result 1");
+        replicas.put("replica 2", () -> {
+            throw new RuntimeException("Replica 2 failed!");
+        });
+        replicas.put("replica 3", () -> {
+            Thread.sleep(Duration.ofSeconds(10));
+            return "Result 3";
+        });
+        replicas.put("replica 4", () -> "Result 4");
+
+        // 2 of 4 is enough, failed and slow replicas don't matter
+        var results = scatterGather.quorum(replicas, 2, Instant.now().plusSeconds(5));
+
+        assertThat(results).containsExactly(Map.entry("replica 1", "Result 1"), Map.entry("replica 4", "Result 4"));
+        assertThat(scatterGather.failures("replica 2")).isEqualTo(1);
+    }
+
+    @Test
+    void structured_concurrency_with_hedged_requests() throws Exception { // preview in Java 21, released in Java ?
+        // Starts a duplicate request, if the first one takes longer than 50 ms
+        var scatterGather = new ScatterGather(95, Duration.ofMillis(50));
+
+        var calls = new AtomicInteger();
+        Callable<String> sometimesSlowBackend = () -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(Duration.ofSeconds(10)); // first call hits a slow replica
+            }
+            return "Result";
+        };
+
+        var start = System.nanoTime();
+        var result = scatterGather.hedged("backend", sometimesSlowBackend, Instant.now().plusSeconds(5));
+
+        assertThat(result).isEqualTo("Result");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(scatterGather.hedges()).isEqualTo(1);
+        assertThat(scatterGather.latency("backend").count()).isEqualTo(1);
+    }
+
     @Test
     void no_need_to_write_class_to_say_hello() { // preview in Java 21, released in Java ?
         /*
@@ -426,4 +758,63 @@ class Java21Tests {
         }
     }
 
+    @Test
+    void route_objects_by_type_with_a_class_value_cached_dispatcher() {
+        // Same routing as a pattern matching switch, resolved once per class instead of checking the cases one by one
+        TypeDispatcher<Object, String> identifier = TypeDispatcher.<Object, String>builder()
+                .on(Cat.class, cat -> cat.name().endsWith("a"), cat -> cat.name() + "*") // like "case Cat c when ..."
+                .on(Cat.class, Cat::name)
+                .on(Dog.class, Dog::name)
+                .on(Number.class, _ -> "It's a Number")
+                .on(Integer.class, _ -> "It's an Integer") // a subtype dominates its supertype, whatever the order
+                .on(CharSequence.class, _ -> "It's a CharSequence")
+                .onNull(() -> "It's null")
+                .otherwise(_ -> "It's something else")
+                .build();
+
+        assertThat(identifier.dispatch(new Cat("Sıdıka"))).isEqualTo("Sıdıka*");
+        assertThat(identifier.dispatch(new Cat("Tom"))).isEqualTo("Tom");
+        assertThat(identifier.dispatch(new Dog("Roxy"))).isEqualTo("Roxy");
+        assertThat(identifier.dispatch(123)).isEqualTo("It's an Integer");
+        assertThat(identifier.dispatch(123L)).isEqualTo("It's a Number"); // falls back to the most specific supertype
+        assertThat(identifier.dispatch("A string")).isEqualTo("It's a CharSequence");
+        assertThat(identifier.dispatch(new StringBuilder("A builder"))).isEqualTo("It's a CharSequence");
+        assertThat(identifier.dispatch(null)).isEqualTo("It's null");
+        assertThat(identifier.dispatch(new ArrayList<>())).isEqualTo("It's something else");
+
+        // Sealed hierarchies are checked for exhaustiveness when the dispatcher is built, like a switch at compile time
+        TypeDispatcher<Shape, Double> area = TypeDispatcher.<Shape, Double>builder()
+                .on(Circle.class, circle -> Math.PI * circle.radius() * circle.radius())
+                .on(Square.class, square -> square.side() <= 0, _ -> 0.0) // a guard alone doesn't cover Square
+                .on(Polygon.class, _ -> Double.NaN) // covers Square and any other polygon, Polygon isn't sealed
+                .requireExhaustive(Shape.class)
+                .build();
+        assertThat(area.dispatch(new Circle(1))).isEqualTo(Math.PI);
+        assertThat(area.dispatch(new Square(-2))).isEqualTo(0.0);
+        assertThat(area.dispatch(new Square(2))).isNaN(); // no guard accepted it, falls back to Polygon
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> {
+                    TypeDispatcher.<Shape, Double>builder()
+                            .on(Circle.class, circle -> Math.PI * circle.radius() * circle.radius())
+                            .on(Square.class, square -> square.side() > 0, square -> square.side() * square.side())
+                            .requireExhaustive(Shape.class)
+                            .build(); // throws exception, Square isn't covered when the guard rejects it
+                }
+        );
+    }
+
+    sealed interface Shape permits Circle, Polygon {
+    }
+
+    record Circle(double radius) implements Shape {
+    }
+
+    non-sealed interface Polygon extends Shape {
+    }
+
+    record Square(double side) implements Polygon {
+    }
+
 }
@@ -0,0 +1,762 @@
+package io.github.ufuk.java21.examples;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.SequencedMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/*
+ * Thread-safe SequencedMap, including putFirst/putLast/pollFirstEntry/pollLastEntry, which ConcurrentSkipListMap doesn't support,
+ * without a lock that every operation waits for (like the Caffeine cache does it):
+ * - entries live in a ConcurrentHashMap, lookups and writes go to it directly and see each other at once
+ * - the order is a linked list that only the thread holding the order lock changes; a write changes it itself if
+ *   tryLock succeeds, otherwise queues the entry in a lock-free queue and goes on, gets in access order record
+ *   the access into one of several lock-striped buffers, chosen by thread, and whichever thread gets the lock next
+ *   applies them in a batch
+ * - when a read buffer is contended or full the access is dropped, so the order is approximately the order of access
+ *   under heavy load
+ * - when the total weight (by default the entry count) exceeds the maximum, the first (eldest) entries are evicted
+ *   while applying the batch, so the size may exceed the maximum by the writes not applied yet
+ * - firstEntry/lastEntry/pollFirstEntry/pollLastEntry and iterators need the whole order, so they wait for the lock;
+ *   iterators of the views are weakly consistent, they work on a copy of the order taken when they are created
+ */
+public class ConcurrentLinkedSequencedMap<K, V> extends AbstractMap<K, V> implements SequencedMap<K, V>, ConcurrentMap<K, V> {
+
+    private static final int READ_BUFFER_SIZE = 32;
+
+    private static final int WRITE_BUFFER_SIZE = 1024;
+
+    private static final int READ_BUFFER_COUNT = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+
+    private static final VarHandle QUEUED;
+
+    private static final VarHandle POSITION;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            QUEUED = lookup.findVarHandle(Node.class, "queued", boolean.class);
+            POSITION = lookup.findVarHandle(Node.class, "position", Position.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private enum Position {FIRST, LAST, KEEP}
+
+    private final ConcurrentHashMap<K, Node<K, V>> nodes = new ConcurrentHashMap<>();
+
+    private final boolean accessOrder;
+
+    private final long maximumWeight;
+
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+
+    private final ReentrantLock orderLock = new ReentrantLock();
+
+    private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_COUNT];
+
+    private final Queue<Node<K, V>> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    // Guarded by the order lock
+    private Node<K, V> head;
+
+    private Node<K, V> tail;
+
+    private long totalWeight;
+
+    private volatile long evictionCount;
+
+    public ConcurrentLinkedSequencedMap() {
+        this(false, Long.MAX_VALUE);
+    }
+
+    public ConcurrentLinkedSequencedMap(Map<? extends K, ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+    public ConcurrentLinkedSequencedMap(boolean accessOrder, long maximumSize) {
+        this(accessOrder, maximumSize, (key, value) -> 1);
+    }
+
+    public ConcurrentLinkedSequencedMap(boolean accessOrder, long maximumWeight, ToLongBiFunction<? super K, ? super V> weigher) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must not be negative: " + maximumWeight);
+        }
+        this.accessOrder = accessOrder;
+        this.maximumWeight = maximumWeight;
+        this.weigher = Objects.requireNonNull(weigher);
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    // Least recently used entries are evicted first
+    public static <K, V> ConcurrentLinkedSequencedMap<K, V> lruCache(long maximumSize) {
+        return new ConcurrentLinkedSequencedMap<>(true, maximumSize);
+    }
+
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (accessOrder) {
+            recordAccess(node);
+        }
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return nodes.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, Position.KEEP, false);
+    }
+
+    @Override
+    public V putFirst(K key, V value) {
+        return put(key, value, Position.FIRST, false);
+    }
+
+    @Override
+    public V putLast(K key, V value) {
+        return put(key, value, Position.LAST, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, Position.KEEP, true);
+    }
+
+    // Like ConcurrentHashMap, the function is applied at most once, but unlike it, without blocking other writers
+    // of the key, so it may be applied by several threads concurrently and only the first result is kept
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        V present = putIfAbsent(key, value);
+        return present != null ? present : value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Object[] removed = new Object[1];
+        nodes.computeIfPresent((K) key, (_, node) -> {
+            node.removed = true; // before anyone can see it out of the map
+            removed[0] = node;
+            return null;
+        });
+        if (removed[0] == null) {
+            return null;
+        }
+        Node<K, V> node = (Node<K, V>) removed[0];
+        afterWrite(node, Position.KEEP);
+        return node.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object key, Object value) {
+        Objects.requireNonNull(value);
+        Object[] removed = new Object[1];
+        nodes.computeIfPresent((K) key, (_, node) -> {
+            if (!node.value.equals(value)) {
+                return node;
+            }
+            node.removed = true;
+            removed[0] = node;
+            return null;
+        });
+        if (removed[0] == null) {
+            return false;
+        }
+        afterWrite((Node<K, V>) removed[0], Position.KEEP);
+        return true;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        Object[] oldValue = new Object[1];
+        Node<K, V> node = nodes.computeIfPresent(key, (_, present) -> {
+            oldValue[0] = present.value;
+            present.update(value, weigh(key, value));
+            return present;
+        });
+        if (node == null) {
+            return null;
+        }
+        afterWrite(node, Position.KEEP);
+        @SuppressWarnings("unchecked")
+        V previous = (V) oldValue[0];
+        return previous;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        boolean[] replaced = new boolean[1];
+        Node<K, V> node = nodes.computeIfPresent(key, (_, present) -> {
+            if (present.value.equals(oldValue)) {
+                present.update(newValue, weigh(key, newValue));
+                replaced[0] = true;
+            }
+            return present;
+        });
+        if (!replaced[0]) {
+            return false;
+        }
+        afterWrite(node, Position.KEEP);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (K key : nodes.keySet()) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers(null);
+            Node<K, V> node = head;
+            while (node != null && node.removed) { // removed, but its write is still in the queue
+                node = node.next;
+            }
+            return node == null ? null : Map.entry(node.key, node.value);
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers(null);
+            Node<K, V> node = tail;
+            while (node != null && node.removed) {
+                node = node.prev;
+            }
+            return node == null ? null : Map.entry(node.key, node.value);
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers(null);
+            while (head != null) {
+                Node<K, V> node = head;
+                unlink(node);
+                if (nodes.remove(node.key, node)) { // fails if another thread removed it in the meantime
+                    node.removed = true;
+                    return Map.entry(node.key, node.value);
+                }
+            }
+            return null;
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers(null);
+            while (tail != null) {
+                Node<K, V> node = tail;
+                unlink(node);
+                if (nodes.remove(node.key, node)) {
+                    node.removed = true;
+                    return Map.entry(node.key, node.value);
+                }
+            }
+            return null;
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView(false);
+    }
+
+    @Override
+    public SequencedMap<K, V> reversed() {
+        return new ReversedView();
+    }
+
+    private V put(K key, V value, Position position, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        long weight = weigh(key, value);
+        Node<K, V> added = new Node<>(key, value, weight);
+        Node<K, V> present = nodes.putIfAbsent(key, added);
+        if (present == null) {
+            afterWrite(added, position);
+            return null;
+        }
+        if (onlyIfAbsent) {
+            if (accessOrder) {
+                recordAccess(present);
+            }
+            return present.value;
+        }
+
+        Object[] oldValue = new Object[1];
+        Node<K, V> node = nodes.compute(key, (_, current) -> {
+            if (current == null) { // removed in the meantime
+                return added;
+            }
+            oldValue[0] = current.value;
+            current.update(value, weight);
+            return current;
+        });
+        afterWrite(node, position);
+        @SuppressWarnings("unchecked")
+        V previous = (V) oldValue[0];
+        return previous;
+    }
+
+    private long weigh(K key, V value) {
+        long weight = weigher.applyAsLong(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative: " + weight);
+        }
+        return weight;
+    }
+
+    /*
+     * Uncontended, a write applies its change itself. Otherwise it queues the node, once for all its changes not
+     * applied yet (a FIRST or LAST position isn't overridden by KEEP), and leaves it to the thread holding the lock,
+     * which looks at the count of queued nodes again after unlocking: either it sees the change, or this thread saw
+     * the lock free and applies it. When that thread falls behind by too many writes (e.g. it isn't scheduled),
+     * writers wait for it.
+     */
+    private void afterWrite(Node<K, V> node, Position position) {
+        if (position != Position.KEEP) {
+            node.position = position;
+        }
+        if (orderLock.tryLock()) {
+            try {
+                drainBuffers(node);
+            } finally {
+                orderLock.unlock();
+            }
+        } else if (!node.queued && QUEUED.compareAndSet(node, false, true)) {
+            writeBuffer.add(node);
+            if (pendingWrites.incrementAndGet() > WRITE_BUFFER_SIZE) {
+                orderLock.lock();
+                try {
+                    drainBuffers(null);
+                } finally {
+                    orderLock.unlock();
+                }
+            }
+        }
+        while (pendingWrites.get() > 0 && orderLock.tryLock()) {
+            try {
+                drainBuffers(null);
+            } finally {
+                orderLock.unlock();
+            }
+        }
+    }
+
+    // Called with the order lock held, applies the accesses and changes in the buffers, then the change of the node
+    // if any, and evicts only after all changes are applied
+    private void drainBuffers(Node<K, V> node) {
+        if (accessOrder) {
+            drainReadBuffers();
+        }
+        if (pendingWrites.get() != 0) {
+            int applied = 0;
+            for (Node<K, V> queued; (queued = writeBuffer.poll()) != null; applied++) {
+                queued.queued = false; // changes from now on queue it again
+                apply(queued);
+            }
+            pendingWrites.addAndGet(-applied);
+        }
+        if (node != null) {
+            apply(node);
+        }
+        while (totalWeight > maximumWeight && head != null) {
+            Node<K, V> eldest = head;
+            unlink(eldest);
+            if (nodes.remove(eldest.key, eldest)) {
+                eldest.removed = true;
+                evictionCount++;
+            }
+        }
+    }
+
+    // Changes of different threads may be applied in another order than they happened in the map, e.g. the removal
+    // of an entry before its addition, or twice, so the state of the node decides, not the order of the changes
+    @SuppressWarnings("unchecked")
+    private void apply(Node<K, V> node) {
+        Position position = (Position) POSITION.getAndSet(node, Position.KEEP);
+        if (node.removed) {
+            if (node.linked) {
+                unlink(node);
+            }
+        } else if (!node.linked) { // added
+            if (position == Position.FIRST) {
+                linkFirst(node);
+            } else {
+                linkLast(node);
+            }
+        } else { // updated
+            if (position == Position.FIRST) {
+                unlink(node);
+                linkFirst(node);
+            } else if (position == Position.LAST || accessOrder) { // an access in access order
+                unlink(node);
+                linkLast(node);
+            }
+            totalWeight += node.weight - node.linkedWeight;
+            node.linkedWeight = node.weight;
+        }
+    }
+
+    private void linkFirst(Node<K, V> node) {
+        node.prev = null;
+        node.next = head;
+        if (head == null) {
+            tail = node;
+        } else {
+            head.prev = node;
+        }
+        head = node;
+        link(node);
+    }
+
+    private void linkLast(Node<K, V> node) {
+        node.next = null;
+        node.prev = tail;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        link(node);
+    }
+
+    private void link(Node<K, V> node) {
+        node.linked = true;
+        node.linkedWeight = node.weight;
+        totalWeight += node.linkedWeight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.linked = false;
+        totalWeight -= node.linkedWeight;
+    }
+
+    private void recordAccess(Node<K, V> node) {
+        ReadBuffer buffer = readBuffers[(int) (Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L >>> 32) & (readBuffers.length - 1)];
+        boolean full = false;
+        if (buffer.lock.tryLock()) {
+            try {
+                if (buffer.count < READ_BUFFER_SIZE) {
+                    buffer.nodes[buffer.count++] = node;
+                }
+                full = buffer.count == READ_BUFFER_SIZE;
+            } finally {
+                buffer.lock.unlock();
+            }
+        }
+        if (full && orderLock.tryLock()) {
+            try {
+                drainBuffers(null);
+            } finally {
+                orderLock.unlock();
+            }
+        }
+    }
+
+    // Called with the order lock held, a buffer being written to is left for the next drain
+    @SuppressWarnings("unchecked")
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            if (!buffer.lock.tryLock()) {
+                continue;
+            }
+            try {
+                for (int i = 0; i < buffer.count; i++) {
+                    Node<K, V> node = (Node<K, V>) buffer.nodes[i];
+                    buffer.nodes[i] = null;
+                    if (node.linked && node != tail) { // skips entries removed since their access
+                        unlink(node);
+                        linkLast(node);
+                    }
+                }
+                buffer.count = 0;
+            } finally {
+                buffer.lock.unlock();
+            }
+        }
+    }
+
+    private List<Map.Entry<K, V>> snapshot(boolean descending) {
+        orderLock.lock();
+        try {
+            drainBuffers(null);
+            List<Map.Entry<K, V>> entries = new ArrayList<>(nodes.size());
+            for (Node<K, V> node = descending ? tail : head; node != null; node = descending ? node.prev : node.next) {
+                if (!node.removed) {
+                    entries.add(Map.entry(node.key, node.value));
+                }
+            }
+            return entries;
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+
+        // Written in the compute of the map, so one writer at a time
+        private volatile V value;
+
+        private volatile long weight;
+
+        // Set once the node is out of the map, by the thread that removed it or applying its removal
+        private volatile boolean removed;
+
+        private volatile boolean queued;
+
+        private volatile Position position = Position.KEEP;
+
+        // Guarded by the order lock
+        private long linkedWeight;
+
+        private Node<K, V> prev;
+
+        private Node<K, V> next;
+
+        private boolean linked;
+
+        private Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        private void update(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+    }
+
+    private static final class ReadBuffer {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Object[] nodes = new Object[READ_BUFFER_SIZE];
+
+        private int count;
+
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+
+        private final boolean descending;
+
+        private EntrySetView(boolean descending) {
+            this.descending = descending;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Iterator<Map.Entry<K, V>> iterator = snapshot(descending).iterator();
+            return new Iterator<>() {
+
+                private Map.Entry<K, V> lastReturned;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    lastReturned = iterator.next();
+                    return lastReturned;
+                }
+
+                @Override
+                public void remove() {
+                    if (lastReturned == null) {
+                        throw new IllegalStateException();
+                    }
+                    ConcurrentLinkedSequencedMap.this.remove(lastReturned.getKey(), lastReturned.getValue());
+                    lastReturned = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Map.Entry<?, ?> entry
+                    && nodes.get(entry.getKey()) instanceof Node<K, V> node
+                    && node.value.equals(entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLinkedSequencedMap.this.clear();
+        }
+
+    }
+
+    private final class ReversedView extends AbstractMap<K, V> implements SequencedMap<K, V> {
+
+        @Override
+        public V get(Object key) {
+            return ConcurrentLinkedSequencedMap.this.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ConcurrentLinkedSequencedMap.this.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentLinkedSequencedMap.this.size();
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return ConcurrentLinkedSequencedMap.this.put(key, value);
+        }
+
+        @Override
+        public V putFirst(K key, V value) {
+            return ConcurrentLinkedSequencedMap.this.putLast(key, value);
+        }
+
+        @Override
+        public V putLast(K key, V value) {
+            return ConcurrentLinkedSequencedMap.this.putFirst(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return ConcurrentLinkedSequencedMap.this.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLinkedSequencedMap.this.clear();
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return ConcurrentLinkedSequencedMap.this.lastEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return ConcurrentLinkedSequencedMap.this.firstEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return ConcurrentLinkedSequencedMap.this.pollLastEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return ConcurrentLinkedSequencedMap.this.pollFirstEntry();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySetView(true);
+        }
+
+        @Override
+        public SequencedMap<K, V> reversed() {
+            return ConcurrentLinkedSequencedMap.this;
+        }
+
+    }
+
+}
@@ -0,0 +1,348 @@
+package io.github.ufuk.java21.examples;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SequencedCollection;
+import java.util.function.IntConsumer;
+
+/*
+ * Growable circular array of primitive ints, like ArrayDeque but without boxing:
+ * - addFirst/addLast/removeFirst/removeLast are O(1), 4 bytes per element instead of a boxed Integer (16 bytes)
+ *   plus a reference, or a node per element (LinkedList, LinkedHashSet)
+ * - the *Int methods never box, the SequencedCollection<Integer> methods box on the way in and out
+ * - not thread-safe, iterators are fail-fast like the ones of the JDK collections
+ */
+public class IntRingDeque extends AbstractCollection<Integer> implements SequencedCollection<Integer> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] elements;
+
+    private int head;
+
+    private int size;
+
+    private int modCount;
+
+    public IntRingDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntRingDeque(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity must not be negative: " + initialCapacity);
+        }
+        // A power of two, so indexes wrap around with a mask instead of a division
+        this.elements = new int[Math.max(2, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1)];
+    }
+
+    public static IntRingDeque of(int... values) {
+        IntRingDeque deque = new IntRingDeque(values.length);
+        for (int value : values) {
+            deque.addLastInt(value);
+        }
+        return deque;
+    }
+
+    public void addFirstInt(int value) {
+        growIfFull();
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = value;
+        size++;
+        modCount++;
+    }
+
+    public void addLastInt(int value) {
+        growIfFull();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+        modCount++;
+    }
+
+    public int getFirstInt() {
+        checkNotEmpty();
+        return elements[head];
+    }
+
+    public int getLastInt() {
+        checkNotEmpty();
+        return elements[(head + size - 1) & (elements.length - 1)];
+    }
+
+    public int getInt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[(head + index) & (elements.length - 1)];
+    }
+
+    public int removeFirstInt() {
+        checkNotEmpty();
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        modCount++;
+        return value;
+    }
+
+    public int removeLastInt() {
+        checkNotEmpty();
+        size--;
+        modCount++;
+        return elements[(head + size) & (elements.length - 1)];
+    }
+
+    public boolean containsInt(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[(head + i) & (elements.length - 1)] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void forEachInt(IntConsumer action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[(head + i) & (elements.length - 1)]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    public int[] toIntArray() {
+        int[] array = new int[size];
+        copyTo(array);
+        return array;
+    }
+
+    @Override
+    public void addFirst(Integer value) {
+        addFirstInt(value);
+    }
+
+    @Override
+    public void addLast(Integer value) {
+        addLastInt(value);
+    }
+
+    @Override
+    public Integer getFirst() {
+        return getFirstInt();
+    }
+
+    @Override
+    public Integer getLast() {
+        return getLastInt();
+    }
+
+    @Override
+    public Integer removeFirst() {
+        return removeFirstInt();
+    }
+
+    @Override
+    public Integer removeLast() {
+        return removeLastInt();
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        addLastInt(value);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer value && containsInt(value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Itr(false);
+    }
+
+    @Override
+    public SequencedCollection<Integer> reversed() {
+        return new ReversedView();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toIntArray());
+    }
+
+    private void growIfFull() {
+        if (size == elements.length) {
+            int[] grown = new int[elements.length << 1];
+            copyTo(grown);
+            elements = grown;
+            head = 0;
+        }
+    }
+
+    // Copies the elements in order, in at most two chunks as they may wrap around the end of the array
+    private void copyTo(int[] destination) {
+        int firstChunk = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, destination, 0, firstChunk);
+        System.arraycopy(elements, 0, destination, firstChunk, size - firstChunk);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+    }
+
+    // Removes the element at the index by shifting the shorter side of it
+    private void removeAt(int index) {
+        int mask = elements.length - 1;
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+            }
+            head = (head + 1) & mask;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+            }
+        }
+        size--;
+        modCount++;
+    }
+
+    private final class Itr implements Iterator<Integer> {
+
+        private final boolean descending;
+
+        private int next; // position from the start of the iteration
+
+        private int lastReturned = -1;
+
+        private int expectedModCount = modCount;
+
+        private Itr(boolean descending) {
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Integer next() {
+            checkForComodification();
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next++;
+            return getInt(index(lastReturned));
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(index(lastReturned));
+            next = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private int index(int position) {
+            return descending ? size - 1 - position : position;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+    }
+
+    private final class ReversedView extends AbstractCollection<Integer> implements SequencedCollection<Integer> {
+
+        @Override
+        public void addFirst(Integer value) {
+            addLastInt(value);
+        }
+
+        @Override
+        public void addLast(Integer value) {
+            addFirstInt(value);
+        }
+
+        @Override
+        public Integer getFirst() {
+            return getLastInt();
+        }
+
+        @Override
+        public Integer getLast() {
+            return getFirstInt();
+        }
+
+        @Override
+        public Integer removeFirst() {
+            return removeLastInt();
+        }
+
+        @Override
+        public Integer removeLast() {
+            return removeFirstInt();
+        }
+
+        @Override
+        public boolean add(Integer value) {
+            addFirstInt(value);
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return IntRingDeque.this.contains(o);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            IntRingDeque.this.clear();
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Itr(true);
+        }
+
+        @Override
+        public SequencedCollection<Integer> reversed() {
+            return IntRingDeque.this;
+        }
+
+    }
+
+}
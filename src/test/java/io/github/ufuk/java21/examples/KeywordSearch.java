@@ -0,0 +1,333 @@
+package io.github.ufuk.java21.examples;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Finds all occurrences of many keywords at once, like String.indexOf(str, from, to) for each of them but in one pass:
+ * - keywords are compiled once into an Aho-Corasick automaton over their UTF-8 bytes, turned into a DFA,
+ *   so each input byte costs one table lookup whatever the number of keywords
+ * - bytes are mapped to classes (the distinct bytes of the keywords, plus one for all others) to keep the table small
+ * - while no keyword is partially matched, bytes which can't start a keyword are skipped by a prefilter, 8 bytes
+ *   at a time with SWAR (SIMD within a register) when the keywords start with at most 4 distinct bytes
+ * - matches may overlap, all of them are reported, the ones within [from, to) only
+ * Works on CharSequence (indexes in chars) and UTF-8 byte[] (indexes in bytes). Compiled searches are thread-safe.
+ */
+public final class KeywordSearch {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long LOW_BITS = 0x0101010101010101L;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final int MAX_SWAR_FIRST_BYTES = 4;
+
+    private static final int LONE_SURROGATE = 0xFF; // never appears in UTF-8, so in no keyword
+
+    private final List<String> keywords;
+
+    private final int[] keywordLengthInChars;
+
+    private final int[] keywordLengthInBytes;
+
+    private final int[] classOf; // byte class of each byte value
+
+    private final int shift; // log2 of the row length of the table, which is the class count rounded up
+
+    private final int[] transitions; // next state, bitwise complemented if a keyword ends at it
+
+    private final int[] output; // keyword ending at the state, or -1
+
+    private final int[] outputLink; // nearest state on the failure chain where a keyword ends, or -1
+
+    private final boolean[] startsKeyword;
+
+    private final long[] firstBytePatterns; // the first bytes repeated 8 times, null if too many for SWAR
+
+    private KeywordSearch(List<String> keywords, int[] keywordLengthInChars, int[] keywordLengthInBytes, int[] classOf,
+                          int shift, int[] transitions, int[] output, int[] outputLink, boolean[] startsKeyword) {
+        this.keywords = keywords;
+        this.keywordLengthInChars = keywordLengthInChars;
+        this.keywordLengthInBytes = keywordLengthInBytes;
+        this.classOf = classOf;
+        this.shift = shift;
+        this.transitions = transitions;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.startsKeyword = startsKeyword;
+
+        List<Long> patterns = new ArrayList<>();
+        for (int b = 0; b < 256; b++) {
+            if (startsKeyword[b]) {
+                patterns.add(LOW_BITS * b);
+            }
+        }
+        this.firstBytePatterns = patterns.size() <= MAX_SWAR_FIRST_BYTES
+                ? patterns.stream().mapToLong(Long::longValue).toArray()
+                : null;
+    }
+
+    // Duplicate keywords are reported by the index of their first occurrence
+    public static KeywordSearch compile(Collection<String> keywords) {
+        List<String> keywordList = List.copyOf(keywords);
+        if (keywordList.isEmpty()) {
+            throw new IllegalArgumentException("No keywords");
+        }
+        byte[][] encoded = new byte[keywordList.size()][];
+        int[] lengthInChars = new int[keywordList.size()];
+        int[] lengthInBytes = new int[keywordList.size()];
+        for (int k = 0; k < keywordList.size(); k++) {
+            String keyword = keywordList.get(k);
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Empty keyword at index " + k);
+            }
+            encoded[k] = utf8(keyword);
+            lengthInChars[k] = keyword.length();
+            lengthInBytes[k] = encoded[k].length;
+        }
+
+        // Class 0 is for the bytes not appearing in any keyword
+        int[] classOf = new int[256];
+        int classCount = 1;
+        for (byte[] keyword : encoded) {
+            for (byte b : keyword) {
+                if (classOf[b & 0xFF] == 0) {
+                    classOf[b & 0xFF] = classCount++;
+                }
+            }
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(classCount - 1);
+        int stride = 1 << shift;
+
+        // Trie of the keywords, 0 meaning no transition yet (the root can't be a target)
+        List<int[]> trie = new ArrayList<>();
+        trie.add(new int[stride]);
+        List<Integer> terminals = new ArrayList<>(List.of(-1));
+        for (int k = 0; k < encoded.length; k++) {
+            int state = 0;
+            for (byte b : encoded[k]) {
+                int symbol = classOf[b & 0xFF];
+                if (trie.get(state)[symbol] == 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(new int[stride]);
+                    terminals.add(-1);
+                }
+                state = trie.get(state)[symbol];
+            }
+            if (terminals.get(state) < 0) {
+                terminals.set(state, k);
+            }
+        }
+
+        // Breadth-first, completes the missing transitions with the ones of the failure state
+        int stateCount = trie.size();
+        int[] transitions = new int[stateCount << shift];
+        int[] output = terminals.stream().mapToInt(Integer::intValue).toArray();
+        int[] outputLink = new int[stateCount];
+        int[] failure = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < stride; symbol++) {
+            int child = trie.get(0)[symbol];
+            transitions[symbol] = child;
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = failure[state];
+            outputLink[state] = output[fail] >= 0 ? fail : outputLink[fail];
+            for (int symbol = 0; symbol < stride; symbol++) {
+                int child = trie.get(state)[symbol];
+                if (child != 0) {
+                    failure[child] = transitions[(fail << shift) | symbol];
+                    transitions[(state << shift) | symbol] = child;
+                    queue.add(child);
+                } else {
+                    transitions[(state << shift) | symbol] = transitions[(fail << shift) | symbol];
+                }
+            }
+        }
+        for (int i = 0; i < transitions.length; i++) {
+            int target = transitions[i];
+            if (output[target] >= 0 || outputLink[target] >= 0) {
+                transitions[i] = ~target;
+            }
+        }
+
+        boolean[] startsKeyword = new boolean[256];
+        for (byte[] keyword : encoded) {
+            startsKeyword[keyword[0] & 0xFF] = true;
+        }
+        return new KeywordSearch(keywordList, lengthInChars, lengthInBytes, classOf, shift, transitions, output, outputLink, startsKeyword);
+    }
+
+    public List<String> keywords() {
+        return keywords;
+    }
+
+    public List<Match> findAll(CharSequence text) {
+        return findAll(text, 0, text.length());
+    }
+
+    public List<Match> findAll(CharSequence text, int from, int to) {
+        List<Match> matches = new ArrayList<>();
+        findAll(text, from, to, (keyword, start, end) -> matches.add(new Match(keyword, start, end)));
+        return matches;
+    }
+
+    // Calls the consumer for each match within [from, to) in the order of their ends, indexes are in chars
+    public void findAll(CharSequence text, int from, int to, MatchConsumer consumer) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int state = 0;
+        int i = from;
+        while (i < to) {
+            if (state == 0) { // nothing partially matched, skip what can't start a keyword
+                while (i < to && !canStartKeyword(text.charAt(i))) {
+                    i++;
+                }
+                if (i == to) {
+                    return;
+                }
+            }
+            char c = text.charAt(i++);
+            if (c < 0x80) {
+                state = step(state, c, i, false, consumer);
+            } else if (c < 0x800) {
+                state = step(state, 0xC0 | c >>> 6, i, false, consumer);
+                state = step(state, 0x80 | c & 0x3F, i, false, consumer);
+            } else if (Character.isHighSurrogate(c) && i < to && Character.isLowSurrogate(text.charAt(i))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(i++));
+                state = step(state, 0xF0 | codePoint >>> 18, i, false, consumer);
+                state = step(state, 0x80 | codePoint >>> 12 & 0x3F, i, false, consumer);
+                state = step(state, 0x80 | codePoint >>> 6 & 0x3F, i, false, consumer);
+                state = step(state, 0x80 | codePoint & 0x3F, i, false, consumer);
+            } else if (Character.isSurrogate(c)) {
+                state = step(state, LONE_SURROGATE, i, false, consumer);
+            } else {
+                state = step(state, 0xE0 | c >>> 12, i, false, consumer);
+                state = step(state, 0x80 | c >>> 6 & 0x3F, i, false, consumer);
+                state = step(state, 0x80 | c & 0x3F, i, false, consumer);
+            }
+        }
+    }
+
+    public List<Match> findAll(byte[] utf8, int from, int to) {
+        List<Match> matches = new ArrayList<>();
+        findAll(utf8, from, to, (keyword, start, end) -> matches.add(new Match(keyword, start, end)));
+        return matches;
+    }
+
+    // Calls the consumer for each match within [from, to) in the order of their ends, indexes are in bytes
+    public void findAll(byte[] utf8, int from, int to, MatchConsumer consumer) {
+        Objects.checkFromToIndex(from, to, utf8.length);
+        int state = 0;
+        int i = from;
+        while (i < to) {
+            if (state == 0) {
+                i = nextCandidate(utf8, i, to);
+                if (i == to) {
+                    return;
+                }
+            }
+            state = step(state, utf8[i++] & 0xFF, i, true, consumer);
+        }
+    }
+
+    // Moves to the next state, reporting the keywords ending at it
+    private int step(int state, int b, int end, boolean inBytes, MatchConsumer consumer) {
+        int next = transitions[(state << shift) | classOf[b]];
+        if (next >= 0) {
+            return next;
+        }
+        next = ~next;
+        for (int s = output[next] >= 0 ? next : outputLink[next]; s >= 0; s = outputLink[s]) {
+            int keyword = output[s];
+            consumer.accept(keyword, end - (inBytes ? keywordLengthInBytes[keyword] : keywordLengthInChars[keyword]), end);
+        }
+        return next;
+    }
+
+    private boolean canStartKeyword(char c) {
+        if (c < 0x80) {
+            return startsKeyword[c];
+        }
+        int leadingByte = c < 0x800 ? 0xC0 | c >>> 6
+                : Character.isHighSurrogate(c) ? 0xF0 // the exact byte depends on the low surrogate
+                : Character.isSurrogate(c) ? LONE_SURROGATE
+                : 0xE0 | c >>> 12;
+        return leadingByte == 0xF0 ? startsKeyword[0xF0] || startsKeyword[0xF1] || startsKeyword[0xF2] || startsKeyword[0xF3] || startsKeyword[0xF4]
+                : startsKeyword[leadingByte];
+    }
+
+    // Index of the next byte which can start a keyword, or "to"
+    private int nextCandidate(byte[] utf8, int from, int to) {
+        int i = from;
+        if (firstBytePatterns != null) {
+            for (; i + Long.BYTES <= to; i += Long.BYTES) {
+                long word = (long) LONGS.get(utf8, i);
+                long found = 0;
+                for (long pattern : firstBytePatterns) {
+                    long candidate = word ^ pattern;
+                    found |= (candidate - LOW_BITS) & ~candidate & HIGH_BITS;
+                }
+                if (found != 0) {
+                    // The lowest flagged byte is exact, higher ones may be false positives, which the table sorts out
+                    return i + (Long.numberOfTrailingZeros(found) >>> 3);
+                }
+            }
+        }
+        while (i < to && !startsKeyword[utf8[i] & 0xFF]) {
+            i++;
+        }
+        return i;
+    }
+
+    // Same bytes as String.getBytes(UTF_8), which would silently replace a lone surrogate with '?'
+    private static byte[] utf8(String keyword) {
+        byte[] bytes = new byte[keyword.length() * 3];
+        int length = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | c >>> 6);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < keyword.length() && Character.isLowSurrogate(keyword.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, keyword.charAt(++i));
+                bytes[length++] = (byte) (0xF0 | codePoint >>> 18);
+                bytes[length++] = (byte) (0x80 | codePoint >>> 12 & 0x3F);
+                bytes[length++] = (byte) (0x80 | codePoint >>> 6 & 0x3F);
+                bytes[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                throw new IllegalArgumentException("Lone surrogate at index " + i + " of keyword " + keyword);
+            } else {
+                bytes[length++] = (byte) (0xE0 | c >>> 12);
+                bytes[length++] = (byte) (0x80 | c >>> 6 & 0x3F);
+                bytes[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    public record Match(int keyword, int start, int end) {
+    }
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+
+        void accept(int keyword, int start, int end);
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.github.ufuk.java21.examples;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/*
+ * Request scoped data carried by a ScopedValue instead of an (Inheritable)ThreadLocal:
+ * - bound once per request, immutable, and unbound automatically when the request is done
+ * - subtasks forked in a StructuredTaskScope see it without copying anything
+ * - other threads (e.g. a virtual thread per task) see it only through wrap(...), which re-binds the captured context
+ */
+public record RequestContext(String traceId, String tenant, Instant deadline, String user) {
+
+    private static final ScopedValue<RequestContext> CURRENT = ScopedValue.newInstance();
+
+    public static void runWith(RequestContext context, Runnable task) {
+        ScopedValue.where(CURRENT, context).run(task);
+    }
+
+    public static <T> T callWith(RequestContext context, Callable<T> task) throws Exception {
+        return ScopedValue.where(CURRENT, context).call(task::call);
+    }
+
+    // Throws NoSuchElementException out of a request
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    public static Optional<RequestContext> find() {
+        return CURRENT.isBound() ? Optional.of(CURRENT.get()) : Optional.empty();
+    }
+
+    // Captures the context of the calling thread, to run the task with it on another thread
+    public static Runnable wrap(Runnable task) {
+        if (!CURRENT.isBound()) {
+            return task;
+        }
+        RequestContext context = CURRENT.get();
+        return () -> runWith(context, task);
+    }
+
+    public boolean isExpired() {
+        return deadline != null && Instant.now().isAfter(deadline);
+    }
+
+}
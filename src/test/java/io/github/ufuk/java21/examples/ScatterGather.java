@@ -0,0 +1,196 @@
+package io.github.ufuk.java21.examples;
+
+import io.github.ufuk.java18.examples.LatencyHistogram;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Fan-out/fan-in on top of StructuredTaskScope, every call is bounded by a deadline (joinUntil):
+ * - all: every subtask must succeed (ShutdownOnFailure)
+ * - any: first successful subtask wins (ShutdownOnSuccess)
+ * - quorum: first k successful subtasks of n win
+ * - hedged: if a call takes longer than usual (a percentile of its past latencies), a duplicate is started
+ * Latencies are recorded per subtask name, remaining subtasks are cancelled as soon as the result is known.
+ */
+public class ScatterGather {
+
+    private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+
+    private final double hedgePercentile;
+
+    private final Duration initialHedgeDelay;
+
+    private final Map<String, SubtaskMetrics> metrics = new ConcurrentHashMap<>();
+
+    private final LongAdder hedges = new LongAdder();
+
+    // Until a subtask has enough samples, the initial hedge delay is used
+    public ScatterGather(double hedgePercentile, Duration initialHedgeDelay) {
+        this.hedgePercentile = hedgePercentile;
+        this.initialHedgeDelay = initialHedgeDelay;
+    }
+
+    public <T> SequencedMap<String, T> all(SequencedMap<String, Callable<T>> tasks, Instant deadline) throws InterruptedException, ExecutionException, TimeoutException {
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            var subtasks = new LinkedHashMap<String, StructuredTaskScope.Subtask<T>>();
+            tasks.forEach((name, task) -> subtasks.put(name, scope.fork(timed(name, task))));
+
+            scope.joinUntil(deadline);
+            scope.throwIfFailed();
+
+            var results = new LinkedHashMap<String, T>();
+            subtasks.forEach((name, subtask) -> results.put(name, subtask.get()));
+            return results;
+        }
+    }
+
+    public <T> T any(SequencedMap<String, Callable<T>> tasks, Instant deadline) throws InterruptedException, ExecutionException, TimeoutException {
+        try (var scope = new StructuredTaskScope.ShutdownOnSuccess<T>()) {
+            tasks.forEach((name, task) -> scope.fork(timed(name, task)));
+
+            scope.joinUntil(deadline);
+            return scope.result();
+        }
+    }
+
+    // Returns results of the first "required" successful subtasks, in the order of the given tasks
+    public <T> SequencedMap<String, T> quorum(SequencedMap<String, Callable<T>> tasks, int required, Instant deadline) throws InterruptedException, ExecutionException, TimeoutException {
+        if (required <= 0 || required > tasks.size()) {
+            throw new IllegalArgumentException("Required count must be in [1, " + tasks.size() + "]: " + required);
+        }
+
+        try (var scope = new QuorumScope<T>(required, tasks.size())) {
+            var subtasks = new LinkedHashMap<String, StructuredTaskScope.Subtask<T>>();
+            tasks.forEach((name, task) -> subtasks.put(name, scope.fork(timed(name, task))));
+
+            scope.joinUntil(deadline);
+
+            var results = new LinkedHashMap<String, T>();
+            var failures = new ArrayList<Throwable>();
+            for (var entry : subtasks.entrySet()) {
+                var subtask = entry.getValue();
+                if (subtask.state() == StructuredTaskScope.Subtask.State.SUCCESS && results.size() < required) {
+                    results.put(entry.getKey(), subtask.get());
+                } else if (subtask.state() == StructuredTaskScope.Subtask.State.FAILED) {
+                    failures.add(subtask.exception());
+                }
+            }
+
+            if (results.size() < required) {
+                var exception = new ExecutionException("Quorum of " + required + " not reached, " + results.size() + " succeeded", failures.isEmpty() ? null : failures.getFirst());
+                failures.stream().skip(1).forEach(exception::addSuppressed);
+                throw exception;
+            }
+            return results;
+        }
+    }
+
+    public <T> T hedged(String name, Callable<T> task, Instant deadline) throws InterruptedException, ExecutionException, TimeoutException {
+        Duration hedgeDelay = hedgeDelay(name);
+
+        try (var scope = new StructuredTaskScope.ShutdownOnSuccess<T>()) {
+            scope.fork(timed(name, task));
+            scope.fork(() -> {
+                Thread.sleep(hedgeDelay); // interrupted, if the first call completes before
+                hedges.increment();
+                return timed(name, task).call();
+            });
+
+            scope.joinUntil(deadline);
+            return scope.result();
+        }
+    }
+
+    public LatencyHistogram latency(String name) {
+        return metricsOf(name).latency();
+    }
+
+    public long failures(String name) {
+        return metricsOf(name).failures().sum();
+    }
+
+    public long hedges() {
+        return hedges.sum();
+    }
+
+    private Duration hedgeDelay(String name) {
+        LatencyHistogram latency = latency(name);
+        if (latency.count() < MIN_SAMPLES_FOR_HEDGING) {
+            return initialHedgeDelay;
+        }
+        return Duration.ofNanos(latency.valueAtPercentile(hedgePercentile));
+    }
+
+    // Records latencies of successful calls only, cancelled calls would look faster than they are
+    private <T> Callable<T> timed(String name, Callable<T> task) {
+        SubtaskMetrics subtaskMetrics = metricsOf(name);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                T result = task.call();
+                subtaskMetrics.latency().record(System.nanoTime() - start);
+                return result;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                subtaskMetrics.failures().increment();
+                throw e;
+            }
+        };
+    }
+
+    private SubtaskMetrics metricsOf(String name) {
+        return metrics.computeIfAbsent(name, _ -> new SubtaskMetrics(new LatencyHistogram(), new LongAdder()));
+    }
+
+    private record SubtaskMetrics(LatencyHistogram latency, LongAdder failures) {
+    }
+
+    private static final class QuorumScope<T> extends StructuredTaskScope<T> {
+
+        private final int required;
+
+        private final int total;
+
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        QuorumScope(int required, int total) {
+            this.required = required;
+            this.total = total;
+        }
+
+        @Override
+        protected void handleComplete(Subtask<? extends T> subtask) {
+            switch (subtask.state()) {
+                case SUCCESS -> {
+                    if (successes.incrementAndGet() >= required) {
+                        shutdown();
+                    }
+                }
+                case FAILED -> {
+                    if (failures.incrementAndGet() > total - required) { // quorum can't be reached anymore
+                        shutdown();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+    }
+
+}
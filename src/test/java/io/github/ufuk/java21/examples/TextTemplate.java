@@ -0,0 +1,240 @@
+package io.github.ufuk.java21.examples;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Text (blocks) with ${name} placeholders, parsed once into literal and slot segments, what the withdrawn STR
+ * string templates (preview in Java 21 and 22) did at compile time:
+ * - render(...) appends into a StringBuilder presized from the length of the previous output, so it doesn't grow
+ * - encode(...) writes UTF-8 directly into a heap or direct ByteBuffer, the literals are encoded once, values char by
+ *   char
+ * - values are positional, one per distinct name in order of first appearance; ints and longs are appended or
+ *   encoded without turning them into Strings
+ * "$${" stands for a literal "${". Templates are immutable and thread-safe.
+ */
+public final class TextTemplate {
+
+    private static final byte[] DIGIT_TENS = new byte[100];
+
+    private static final byte[] DIGIT_ONES = new byte[100];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (byte) ('0' + i / 10);
+            DIGIT_ONES[i] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private final String[] literals; // literals[i] comes before slots[i], the last one after the last slot
+
+    private final byte[][] utf8Literals;
+
+    private final int[] slots; // index of the value of each placeholder
+
+    private final List<String> slotNames;
+
+    private final int literalLength;
+
+    // Only a hint, so neither volatile nor atomic: a stale or lost update costs a resize at worst
+    private int lastLength;
+
+    private TextTemplate(List<String> literals, List<Integer> slots, List<String> slotNames) {
+        this.literals = literals.toArray(String[]::new);
+        this.utf8Literals = literals.stream().map(literal -> literal.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.slotNames = List.copyOf(slotNames);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+        this.lastLength = literalLength + 16 * this.slots.length;
+    }
+
+    public static TextTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> slotNames = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            if (text.startsWith("$${", i)) {
+                literal.append("${");
+                i += 3;
+            } else if (text.startsWith("${", i)) {
+                int end = text.indexOf('}', i + 2);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder at index " + i);
+                }
+                String name = text.substring(i + 2, end).strip();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Placeholder without name at index " + i);
+                }
+                if (!slotNames.contains(name)) {
+                    slotNames.add(name);
+                }
+                literals.add(literal.toString());
+                slots.add(slotNames.indexOf(name));
+                literal.setLength(0);
+                i = end + 1;
+            } else {
+                literal.append(text.charAt(i++));
+            }
+        }
+        literals.add(literal.toString());
+        return new TextTemplate(literals, slots, slotNames);
+    }
+
+    // Names of the placeholders, in the order of the values
+    public List<String> slotNames() {
+        return slotNames;
+    }
+
+    public String render(Object... values) {
+        return render(new StringBuilder(lastLength), values).toString();
+    }
+
+    public StringBuilder render(StringBuilder builder, Object... values) {
+        checkValues(values);
+        int start = builder.length();
+        builder.ensureCapacity(start + lastLength);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            Object value = values[slots[i]];
+            if (value instanceof CharSequence text) {
+                builder.append(text);
+            } else if (value instanceof Integer number) {
+                builder.append(number.intValue());
+            } else if (value instanceof Long number) {
+                builder.append(number.longValue());
+            } else {
+                builder.append(value);
+            }
+        }
+        builder.append(literals[slots.length]);
+        lastLength = builder.length() - start;
+        return builder;
+    }
+
+    // Writes at the position of the buffer and advances it; if it doesn't fit, the position is left unchanged
+    public ByteBuffer encode(ByteBuffer buffer, Object... values) {
+        checkValues(values);
+        // absolute puts only, so a direct buffer is written in place and nothing moves until all of it fits
+        int position = buffer.position();
+        int limit = buffer.limit();
+        for (int i = 0; i < slots.length; i++) {
+            position = putLiteral(buffer, position, limit, utf8Literals[i]);
+            Object value = values[slots[i]];
+            if (value instanceof CharSequence text) {
+                position = putUtf8(buffer, position, limit, text);
+            } else if (value instanceof Integer number) {
+                position = putDecimal(buffer, position, limit, number.intValue());
+            } else if (value instanceof Long number) {
+                position = putDecimal(buffer, position, limit, number.longValue());
+            } else {
+                position = putUtf8(buffer, position, limit, String.valueOf(value));
+            }
+        }
+        position = putLiteral(buffer, position, limit, utf8Literals[slots.length]);
+        return buffer.position(position);
+    }
+
+    private void checkValues(Object[] values) {
+        if (values.length != slotNames.size()) {
+            throw new IllegalArgumentException("Expected " + slotNames.size() + " values for " + slotNames + ", got " + values.length);
+        }
+    }
+
+    private static int putLiteral(ByteBuffer buffer, int position, int limit, byte[] literal) {
+        if (literal.length > limit - position) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(position, literal);
+        return position + literal.length;
+    }
+
+    // Encodes char by char, an unpaired surrogate becomes '?' like String.getBytes(UTF_8) does
+    private static int putUtf8(ByteBuffer buffer, int position, int limit, CharSequence text) {
+        int length = text.length();
+        if (length > limit - position) { // the UTF-8 of a text is at least as long as the text
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (position == limit) {
+                    throw new BufferOverflowException();
+                }
+                buffer.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                checkRemaining(position, limit, 2);
+                buffer.put(position++, (byte) (0xC0 | c >> 6));
+                buffer.put(position++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    checkRemaining(position, limit, 4);
+                    buffer.put(position++, (byte) (0xF0 | codePoint >> 18));
+                    buffer.put(position++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                    buffer.put(position++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                    buffer.put(position++, (byte) (0x80 | codePoint & 0x3F));
+                } else {
+                    checkRemaining(position, limit, 1);
+                    buffer.put(position++, (byte) '?');
+                }
+            } else {
+                checkRemaining(position, limit, 3);
+                buffer.put(position++, (byte) (0xE0 | c >> 12));
+                buffer.put(position++, (byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put(position++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    // Two digits per division from the end, on the negative value so that Long.MIN_VALUE needs no special case
+    private static int putDecimal(ByteBuffer buffer, int position, int limit, long value) {
+        int end = position + decimalLength(value);
+        if (end > limit || end < position) {
+            throw new BufferOverflowException();
+        }
+        long negative = value < 0 ? value : -value;
+        int i = end;
+        while (negative <= -100) {
+            long quotient = negative / 100;
+            int pair = (int) (quotient * 100 - negative);
+            buffer.put(--i, DIGIT_ONES[pair]);
+            buffer.put(--i, DIGIT_TENS[pair]);
+            negative = quotient;
+        }
+        int pair = (int) -negative;
+        buffer.put(--i, DIGIT_ONES[pair]);
+        if (pair >= 10) {
+            buffer.put(--i, DIGIT_TENS[pair]);
+        }
+        if (value < 0) {
+            buffer.put(--i, (byte) '-');
+        }
+        return end;
+    }
+
+    private static int decimalLength(long value) {
+        int sign = value < 0 ? 1 : 0;
+        long negative = value < 0 ? value : -value;
+        long bound = -10;
+        for (int digits = 1; digits < 19; digits++) {
+            if (negative > bound) {
+                return digits + sign;
+            }
+            bound *= 10;
+        }
+        return 19 + sign;
+    }
+
+    private static void checkRemaining(int position, int limit, int length) {
+        if (length > limit - position) {
+            throw new BufferOverflowException();
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package io.github.ufuk.java21.examples;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/*
+ * Routes values to handlers by their runtime class, like a pattern matching switch, but for hundreds of types:
+ * - a switch checks the cases one after the other, the dispatcher resolves the handlers of a class once
+ *   and caches them in a ClassValue, so a dispatch costs a lookup plus the guards of that class only
+ * - handlers of the most specific registered type come first (subtypes dominate supertypes like in a switch),
+ *   within a type in registration order; a value no guard accepts falls back to the handlers of the supertypes
+ * - requireExhaustive(sealedType) checks at build time that every permitted subclass has an unguarded handler,
+ *   like the compiler checks a switch over a sealed type
+ * Built dispatchers are immutable and thread-safe.
+ */
+public final class TypeDispatcher<T, R> {
+
+    private final Map<Class<?>, List<Route<R>>> routesByType;
+
+    private final Function<? super T, ? extends R> otherwise;
+
+    private final Supplier<? extends R> onNull;
+
+    private final ClassValue<Route<R>[]> routes = new ClassValue<>() {
+        @Override
+        protected Route<R>[] computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private TypeDispatcher(Builder<T, R> builder) {
+        this.routesByType = new LinkedHashMap<>();
+        builder.routesByType.forEach((type, typeRoutes) -> routesByType.put(type, List.copyOf(typeRoutes)));
+        this.otherwise = builder.otherwise;
+        this.onNull = builder.onNull;
+    }
+
+    public static <T, R> Builder<T, R> builder() {
+        return new Builder<>();
+    }
+
+    public R dispatch(T value) {
+        if (value == null) {
+            if (onNull == null) {
+                throw new NullPointerException("No handler for null");
+            }
+            return onNull.get();
+        }
+        for (Route<R> route : routes.get(value.getClass())) {
+            if (route.guard == null || route.guard.test(value)) {
+                return route.handler.apply(value);
+            }
+        }
+        if (otherwise == null) {
+            throw new IllegalArgumentException("No handler for " + value.getClass().getName());
+        }
+        return otherwise.apply(value);
+    }
+
+    // Handlers of the registered supertypes, the most specific first
+    @SuppressWarnings("unchecked")
+    private Route<R>[] resolve(Class<?> type) {
+        List<Class<?>> candidates = new ArrayList<>();
+        for (Class<?> registered : routesByType.keySet()) {
+            if (registered.isAssignableFrom(type)) {
+                candidates.add(registered);
+            }
+        }
+
+        List<Route<R>> resolved = new ArrayList<>();
+        while (!candidates.isEmpty()) {
+            Class<?> mostSpecific = candidates.stream()
+                    .filter(candidate -> candidates.stream().noneMatch(other -> other != candidate && candidate.isAssignableFrom(other)))
+                    .findFirst()
+                    .orElseThrow();
+            candidates.remove(mostSpecific);
+            for (Route<R> route : routesByType.get(mostSpecific)) {
+                resolved.add(route);
+                if (route.guard == null) { // the routes after it would never be reached
+                    return resolved.toArray(Route[]::new);
+                }
+            }
+        }
+        return resolved.toArray(Route[]::new);
+    }
+
+    private record Route<R>(Predicate<Object> guard, Function<Object, ? extends R> handler) {
+    }
+
+    public static final class Builder<T, R> {
+
+        private final Map<Class<?>, List<Route<R>>> routesByType = new LinkedHashMap<>();
+
+        private final List<Class<?>> exhaustiveTypes = new ArrayList<>();
+
+        private Function<? super T, ? extends R> otherwise;
+
+        private Supplier<? extends R> onNull;
+
+        private Builder() {
+        }
+
+        public <S extends T> Builder<T, R> on(Class<S> type, Function<? super S, ? extends R> handler) {
+            return on(type, null, handler);
+        }
+
+        // Like "case S s when guard(s)", a value the guard rejects goes on to the next handler
+        @SuppressWarnings("unchecked")
+        public <S extends T> Builder<T, R> on(Class<S> type, Predicate<? super S> guard, Function<? super S, ? extends R> handler) {
+            if (type.isPrimitive()) {
+                throw new IllegalArgumentException("Values are boxed, register " + type.getName() + " by its wrapper type");
+            }
+            routesByType.computeIfAbsent(type, _ -> new ArrayList<>())
+                    .add(new Route<>((Predicate<Object>) guard, (Function<Object, ? extends R>) handler));
+            return this;
+        }
+
+        // Like the default branch, for values no handler accepts
+        public Builder<T, R> otherwise(Function<? super T, ? extends R> handler) {
+            this.otherwise = handler;
+            return this;
+        }
+
+        // Like "case null", without it null values throw NullPointerException
+        public Builder<T, R> onNull(Supplier<? extends R> handler) {
+            this.onNull = handler;
+            return this;
+        }
+
+        public Builder<T, R> requireExhaustive(Class<? extends T> sealedType) {
+            if (!sealedType.isSealed()) {
+                throw new IllegalArgumentException(sealedType.getName() + " is not sealed");
+            }
+            exhaustiveTypes.add(sealedType);
+            return this;
+        }
+
+        // Resolves the permitted subclasses of the sealed types upfront, so their first dispatch is as fast as the next ones
+        public TypeDispatcher<T, R> build() {
+            TypeDispatcher<T, R> dispatcher = new TypeDispatcher<>(this);
+            List<String> uncovered = new ArrayList<>();
+            for (Class<?> sealedType : exhaustiveTypes) {
+                checkCovered(dispatcher, sealedType, uncovered);
+            }
+            if (!uncovered.isEmpty()) {
+                throw new IllegalStateException("No unguarded handler for " + String.join(", ", uncovered));
+            }
+            return dispatcher;
+        }
+
+        private static void checkCovered(TypeDispatcher<?, ?> dispatcher, Class<?> type, List<String> uncovered) {
+            if (type.isSealed()) {
+                for (Class<?> subclass : type.getPermittedSubclasses()) {
+                    checkCovered(dispatcher, subclass, uncovered);
+                }
+                if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+                    return; // no instance of it, only of its subclasses
+                }
+            }
+            Route<?>[] routes = dispatcher.routes.get(type);
+            if (routes.length == 0 || routes[routes.length - 1].guard() != null) {
+                uncovered.add(type.getName());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.github.ufuk.java22;
+
+import io.github.ufuk.java14.examples.MyImmutableDataModel;
+import io.github.ufuk.java22.examples.OffHeapModelStore;
+import io.github.ufuk.java22.examples.OffHeapModelStore.Column;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after pairs of {@link Java22Tests}.
+ * Run with: mvn -P benchmark verify -Djmh.include=Java22Benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Java22Benchmarks {
+
+    private static final String[] NAMES = {"Lucky", "Şanslı", "Fıstık", "Tekir", "Pamuk", "Boncuk", "Zeytin", "Duman"};
+
+    @Param({"16", "1024", "65536"})
+    int size;
+
+    List<MyImmutableDataModel> records;
+
+    OffHeapModelStore store;
+
+    @Setup
+    public void setUp() {
+        records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(new MyImmutableDataModel(String.valueOf(i), NAMES[i % NAMES.length]));
+        }
+        store = OffHeapModelStore.copyOf(records);
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public long count_rows_by_name_in_heap_list_before() {
+        return records.stream()
+                .filter(record -> "Fıstık".equals(record.name()))
+                .count();
+    }
+
+    @Benchmark
+    public long count_rows_by_name_in_off_heap_columns_after() {
+        return store.rowsWhere(Column.NAME, "Fıstık").count();
+    }
+
+    // Reading every record back costs a decoding and allocations per row off the heap, this is the price of the footprint
+    @Benchmark
+    public int read_all_records_from_heap_list_before() {
+        return records.stream()
+                .mapToInt(record -> record.id().length())
+                .sum();
+    }
+
+    @Benchmark
+    public int read_all_records_from_off_heap_columns_after() {
+        return store.stream()
+                .mapToInt(record -> record.id().length())
+                .sum();
+    }
+
+}
@@ -1,19 +1,100 @@
 package io.github.ufuk.java22;
 
-import org.junit.jupiter.api.Assertions;
+import io.github.ufuk.java14.examples.MyImmutableDataModel;
+import io.github.ufuk.java22.examples.MappedLineScanner;
+import io.github.ufuk.java22.examples.OffHeapModelStore;
+import io.github.ufuk.java22.examples.OffHeapModelStore.Column;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 /**
  * Further readings:
  * - https://www.oracle.com/java/technologies/javase/22-relnote-issues.html
  * - https://www.happycoders.eu/java/java-22-features/
  * - https://www.youtube.com/watch?v=T64dUc0wIZ0 (Java 22 Release Notes Review - Inside Java Newscast #65)
+ * - https://openjdk.org/jeps/454 (Foreign Function & Memory API)
  */
 class Java22Tests {
 
     @Test
-    void todo() {
-        Assertions.fail("No example presents"); // TODO: add example(s)
+    void read_large_files_with_memory_mapped_segments_in_parallel() throws IOException { // Foreign Function & Memory API is released in Java 22
+        Path file = Files.createTempFile("lines", ".txt");
+        try {
+            // Non-ASCII content would be corrupted by casting each byte to char
+            Files.writeString(file, "Fıstıkçı Şahap\r\nI like to move it\n\n".repeat(1_000) + "last line without new line", StandardCharsets.UTF_8);
+
+            // Tiny chunks, just to split the file into many chunks
+            MappedLineScanner scanner = new MappedLineScanner(1024, 4);
+
+            Queue<String> lines = new ConcurrentLinkedQueue<>();
+            long lineCount = scanner.scan(file, line -> lines.add(MappedLineScanner.toString(line)));
+
+            List<String> expectedLines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertThat(lineCount).isEqualTo(expectedLines.size());
+            assertThat(lines).containsExactlyInAnyOrderElementsOf(expectedLines);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void keep_large_record_collections_off_heap_in_columns() {
+        String[] names = {"Lucky", "Şanslı", "Fıstık", null, "🐈 Tekir"};
+        List<MyImmutableDataModel> records = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            records.add(new MyImmutableDataModel(i % 10_000 == 0 ? null : String.valueOf(i), names[i % names.length]));
+        }
+
+        OffHeapModelStore store = OffHeapModelStore.copyOf(records);
+        try (store) {
+            assertThat(store.size()).isEqualTo(records.size());
+            assertThat(store.stream().toList()).isEqualTo(records); // records are materialized only while streaming
+            assertThat(store.get(13)).isEqualTo(records.get(13));
+            assertThat(store.get(13, Column.NAME)).isEqualTo(records.get(13).name());
+
+            // Scans compare the codes of the dictionary-encoded column, no String is decoded
+            assertThat(store.distinctValues(Column.NAME)).isEqualTo(4); // null isn't a value of the dictionary
+            assertThat(store.rowsWhere(Column.NAME, "Şanslı").count()).isEqualTo(20_000);
+            assertThat(store.rowsWhere(Column.NAME, null).count()).isEqualTo(20_000);
+            assertThat(store.rowsWhere(Column.NAME, "Unknown").count()).isZero();
+            assertThat(store.rowsWhere(Column.ID, "99999").toArray()).containsExactly(99_999);
+            int fistik = store.codeOf(Column.NAME, "Fıstık");
+            assertThat(store.valueOf(Column.NAME, fistik)).isEqualTo("Fıstık");
+            assertThat(store.codes(Column.NAME).filter(code -> code == fistik).count()).isEqualTo(20_000);
+
+            // About 32 bytes per row with unique ids, off the heap; on the heap a record and its id String take 64 bytes
+            assertThat(store.byteSize()).isLessThan(records.size() * 40L);
+        }
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> {
+                    store.get(13); // throws exception, the memory is released
+                }
+        );
+
+        // A record that can't be added releases the memory of the records copied so far
+        long reservedBytes = OffHeapModelStore.reservedBytes();
+        List<MyImmutableDataModel> withNull = new ArrayList<>(records.subList(0, 10_000));
+        withNull.add(null);
+        assertThrows(
+                NullPointerException.class,
+                () -> {
+                    OffHeapModelStore.copyOf(withNull); // throws exception
+                }
+        );
+        assertThat(OffHeapModelStore.reservedBytes()).isEqualTo(reservedBytes);
     }
 
 }
@@ -0,0 +1,173 @@
+package io.github.ufuk.java22.examples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/*
+ * Scans large files line by line without copying them into the heap:
+ * - the file is split into chunks on line boundaries
+ * - chunks are memory-mapped one at a time per worker (MemorySegment + Arena, released in Java 22), then unmapped
+ * - lines are handed out as slices of the mapped chunk, bytes are decoded only if the consumer asks for it
+ */
+public final class MappedLineScanner {
+
+    public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final ValueLayout.OfLong WORD = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private static final long NEW_LINES = 0x0A0A0A0A0A0A0A0AL;
+
+    private static final long LOW_BITS = 0x0101010101010101L;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final long chunkSize;
+
+    private final int parallelism;
+
+    public MappedLineScanner() {
+        this(DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MappedLineScanner(long chunkSize, int parallelism) {
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Calls the consumer for each line, concurrently from multiple threads.
+     * Lines are in order within a chunk, but not across chunks. Line terminators ("\n" or "\r\n") are excluded.
+     *
+     * @return count of the lines
+     */
+    public long scan(Path file, LineConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            long[] boundaries = findChunkBoundaries(channel);
+
+            return pool.submit(() -> IntStream.range(0, boundaries.length - 1)
+                            .parallel()
+                            .mapToLong(i -> scanChunk(channel, boundaries[i], boundaries[i + 1], consumer))
+                            .sum())
+                    .get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IllegalStateException("Scanning failed: " + file, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Scanning interrupted: " + file, e);
+        }
+    }
+
+    // Decodes a line when it's really needed, this is the only place which allocates
+    public static String toString(MemorySegment line) {
+        return new String(line.toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+    }
+
+    // Moves each nominal boundary (multiple of chunk size) just after the next new line, so no line is split
+    private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long[] boundaries = new long[(int) Math.min(Integer.MAX_VALUE - 1, size / chunkSize + 2)];
+        int count = 0;
+        boundaries[count++] = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        for (long nominal = chunkSize; nominal < size; nominal += chunkSize) {
+            if (nominal <= boundaries[count - 1]) { // previous line was longer than a chunk
+                continue;
+            }
+            long boundary = nextLineStart(channel, nominal, size, buffer);
+            if (boundary < size) {
+                boundaries[count++] = boundary;
+            }
+        }
+        boundaries[count++] = size;
+
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static long scanChunk(FileChannel channel, long start, long end, LineConsumer consumer) {
+        // Each chunk gets its own arena, so the mapping is released as soon as the chunk is scanned
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start, arena);
+            long length = chunk.byteSize();
+            long lines = 0;
+            long lineStart = 0;
+            while (lineStart < length) {
+                long newLine = indexOfNewLine(chunk, lineStart, length);
+                long lineEnd = newLine < 0 ? length : newLine;
+                long contentEnd = lineEnd > lineStart && chunk.get(ValueLayout.JAVA_BYTE, lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+                consumer.accept(chunk.asSlice(lineStart, contentEnd - lineStart));
+                lines++;
+
+                lineStart = lineEnd + 1;
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Checks 8 bytes at once, see "Determine if a word has a byte equal to n" in Bit Twiddling Hacks
+    private static long indexOfNewLine(MemorySegment segment, long from, long to) {
+        long i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = segment.get(WORD, i) ^ NEW_LINES;
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @FunctionalInterface
+    public interface LineConsumer {
+
+        // The line is a view of the mapped file, it must not be used after this method returns
+        void accept(MemorySegment line);
+
+    }
+
+}
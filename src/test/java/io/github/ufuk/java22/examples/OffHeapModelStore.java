@@ -0,0 +1,391 @@
+package io.github.ufuk.java22.examples;
+
+import io.github.ufuk.java14.examples.MyImmutableDataModel;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/*
+ * Column store of MyImmutableDataModel records off the heap (Foreign Function & Memory API, released in Java 22):
+ * - each component is a column of int codes in a MemorySegment, a code points into the dictionary of the distinct
+ *   values of the column (UTF-8 bytes, their offsets and a hash index, all off-heap too), -1 stands for null
+ * - a row costs 8 bytes plus its distinct values once, instead of a record and two Strings with their byte arrays
+ *   on the heap (about 120 bytes for short values), and the GC sees a handful of objects instead of millions
+ * - records are materialized lazily, one per row read; scans over the codes don't materialize anything
+ * All memory belongs to a shared Arena released by close(), until then the store is immutable and thread-safe.
+ * reservedBytes() tells how much off-heap memory the stores and builders not closed yet hold, e.g. to find leaks.
+ */
+public final class OffHeapModelStore implements AutoCloseable {
+
+    public enum Column {ID, NAME}
+
+    private static final int NULL_CODE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final AtomicLong RESERVED_BYTES = new AtomicLong();
+
+    private final Arena arena;
+
+    private final int size;
+
+    private final MemorySegment idCodes;
+
+    private final MemorySegment nameCodes;
+
+    private final Dictionary ids;
+
+    private final Dictionary names;
+
+    private OffHeapModelStore(Arena arena, int size, MemorySegment idCodes, MemorySegment nameCodes, Dictionary ids, Dictionary names) {
+        this.arena = arena;
+        this.size = size;
+        this.idCodes = idCodes;
+        this.nameCodes = nameCodes;
+        this.ids = ids;
+        this.names = names;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // If a record can't be added, the memory taken so far is released before the exception is thrown
+    public static OffHeapModelStore copyOf(Iterable<MyImmutableDataModel> records) {
+        try (Builder builder = builder()) {
+            records.forEach(builder::add);
+            return builder.build();
+        }
+    }
+
+    // Off-heap memory held by the stores and builders which aren't closed yet
+    public static long reservedBytes() {
+        return RESERVED_BYTES.get();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public MyImmutableDataModel get(int row) {
+        checkRow(row);
+        return new MyImmutableDataModel(ids.get(code(idCodes, row)), names.get(code(nameCodes, row)));
+    }
+
+    public String get(int row, Column column) {
+        checkRow(row);
+        return dictionary(column).get(code(column(column), row));
+    }
+
+    // Materializes each record only when the stream reaches it, the stream can be parallel
+    public Stream<MyImmutableDataModel> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
+    }
+
+    // The column as it is stored, one code per row
+    public IntStream codes(Column column) {
+        MemorySegment codes = column(column);
+        return IntStream.range(0, size).map(row -> code(codes, row));
+    }
+
+    // Code of the value in the column, or -1 if no row has it (null included, its code is always -1)
+    public int codeOf(Column column, String value) {
+        return value == null ? NULL_CODE : dictionary(column).codeOf(value);
+    }
+
+    public String valueOf(Column column, int code) {
+        Dictionary dictionary = dictionary(column);
+        if (code < NULL_CODE || code >= dictionary.count) {
+            throw new IndexOutOfBoundsException("Code " + code + " out of bounds for " + dictionary.count + " distinct values");
+        }
+        return dictionary.get(code);
+    }
+
+    public int distinctValues(Column column) {
+        return dictionary(column).count;
+    }
+
+    // Rows having the value in the column, found by comparing codes, without decoding any value
+    public IntStream rowsWhere(Column column, String value) {
+        MemorySegment codes = column(column);
+        int code = dictionary(column).codeOf(value);
+        if (code == NULL_CODE && value != null) {
+            return IntStream.empty();
+        }
+        return IntStream.range(0, size).filter(row -> code(codes, row) == code);
+    }
+
+    // Off-heap memory held by the store
+    public long byteSize() {
+        return idCodes.byteSize() + nameCodes.byteSize() + ids.byteSize() + names.byteSize();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private MemorySegment column(Column column) {
+        return column == Column.ID ? idCodes : nameCodes;
+    }
+
+    private Dictionary dictionary(Column column) {
+        return column == Column.ID ? ids : names;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    private static int code(MemorySegment codes, int row) {
+        return codes.getAtIndex(ValueLayout.JAVA_INT, row);
+    }
+
+    /*
+     * Appends records into growing segments of a confined arena, which build() copies to exact-size segments
+     * of the store's own arena before releasing them; only the UTF-8 bytes of the value being added are on the heap.
+     * Confined arenas are never released by the GC, so a builder that isn't built must be closed.
+     */
+    public static final class Builder implements AutoCloseable {
+
+        private final Arena buildArena = new CountingArena(Arena.ofConfined());
+
+        private final Dictionary ids = new Dictionary(buildArena);
+
+        private final Dictionary names = new Dictionary(buildArena);
+
+        private MemorySegment idCodes = buildArena.allocate(INITIAL_CAPACITY * Integer.BYTES, Long.BYTES);
+
+        private MemorySegment nameCodes = buildArena.allocate(INITIAL_CAPACITY * Integer.BYTES, Long.BYTES);
+
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(MyImmutableDataModel record) {
+            if (size == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Store is full");
+            }
+            if ((long) size * Integer.BYTES == idCodes.byteSize()) {
+                idCodes = grow(buildArena, idCodes, idCodes.byteSize() + Integer.BYTES);
+                nameCodes = grow(buildArena, nameCodes, nameCodes.byteSize() + Integer.BYTES);
+            }
+            idCodes.setAtIndex(ValueLayout.JAVA_INT, size, ids.add(record.id()));
+            nameCodes.setAtIndex(ValueLayout.JAVA_INT, size, names.add(record.name()));
+            size++;
+            return this;
+        }
+
+        // The builder can't be used afterwards
+        public OffHeapModelStore build() {
+            Arena arena = new CountingArena(Arena.ofShared());
+            try (buildArena) {
+                return new OffHeapModelStore(arena, size,
+                        copy(arena, idCodes, (long) size * Integer.BYTES), copy(arena, nameCodes, (long) size * Integer.BYTES),
+                        ids.copyTo(arena), names.copyTo(arena));
+            } catch (RuntimeException | Error e) {
+                arena.close();
+                throw e;
+            }
+        }
+
+        // Releases the memory of a builder that isn't built, does nothing after build()
+        @Override
+        public void close() {
+            if (buildArena.scope().isAlive()) {
+                buildArena.close();
+            }
+        }
+
+    }
+
+    // Counts the memory of the arena into the reserved bytes, until the arena is closed
+    private static final class CountingArena implements Arena {
+
+        private final Arena arena;
+
+        private final AtomicLong byteSize = new AtomicLong();
+
+        CountingArena(Arena arena) {
+            this.arena = arena;
+        }
+
+        @Override
+        public MemorySegment allocate(long byteSize, long byteAlignment) {
+            MemorySegment segment = arena.allocate(byteSize, byteAlignment);
+            this.byteSize.addAndGet(byteSize);
+            RESERVED_BYTES.addAndGet(byteSize);
+            return segment;
+        }
+
+        @Override
+        public MemorySegment.Scope scope() {
+            return arena.scope();
+        }
+
+        @Override
+        public void close() {
+            arena.close(); // throws if already closed, so the bytes are subtracted once
+            RESERVED_BYTES.addAndGet(-byteSize.get());
+        }
+
+    }
+
+    // Distinct values of a column, the code of a value is its index in insertion order
+    private static final class Dictionary {
+
+        private final Arena arena;
+
+        private MemorySegment bytes; // UTF-8 of the values, one after the other
+
+        private long byteCount;
+
+        private MemorySegment offsets; // start of each value in bytes, plus the end of the last one
+
+        private MemorySegment slots; // open addressing hash index, code + 1 per slot, 0 for an empty slot
+
+        private int count;
+
+        Dictionary(Arena arena) {
+            this.arena = arena;
+            this.bytes = arena.allocate(INITIAL_CAPACITY * 16L, Long.BYTES);
+            this.offsets = arena.allocate((INITIAL_CAPACITY + 1L) * Long.BYTES, Long.BYTES);
+            this.slots = arena.allocate(INITIAL_CAPACITY * 2L * Integer.BYTES, Long.BYTES);
+        }
+
+        private Dictionary(Arena arena, MemorySegment bytes, MemorySegment offsets, MemorySegment slots, int count) {
+            this.arena = arena;
+            this.bytes = bytes;
+            this.byteCount = bytes.byteSize();
+            this.offsets = offsets;
+            this.slots = slots;
+            this.count = count;
+        }
+
+        int add(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            long slot = find(utf8);
+            int entry = slots.getAtIndex(ValueLayout.JAVA_INT, slot);
+            if (entry != 0) {
+                return entry - 1;
+            }
+
+            if (count == Integer.MAX_VALUE - 1) {
+                throw new IllegalStateException("Too many distinct values");
+            }
+            if (byteCount + utf8.length > bytes.byteSize()) {
+                bytes = grow(arena, bytes, byteCount + utf8.length);
+            }
+            MemorySegment.copy(utf8, 0, bytes, ValueLayout.JAVA_BYTE, byteCount, utf8.length);
+            byteCount += utf8.length;
+            if ((count + 2L) * Long.BYTES > offsets.byteSize()) {
+                offsets = grow(arena, offsets, (count + 2L) * Long.BYTES);
+            }
+            offsets.setAtIndex(ValueLayout.JAVA_LONG, count + 1, byteCount);
+            slots.setAtIndex(ValueLayout.JAVA_INT, slot, count + 1);
+            count++;
+
+            if (count * 2L * Integer.BYTES > slots.byteSize()) { // keeps the load factor at most 1/2
+                rehash(slots.byteSize() / Integer.BYTES * 2);
+            }
+            return count - 1;
+        }
+
+        int codeOf(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            return slots.getAtIndex(ValueLayout.JAVA_INT, find(value.getBytes(StandardCharsets.UTF_8))) - 1;
+        }
+
+        String get(int code) {
+            if (code == NULL_CODE) {
+                return null;
+            }
+            long start = offsets.getAtIndex(ValueLayout.JAVA_LONG, code);
+            int length = (int) (offsets.getAtIndex(ValueLayout.JAVA_LONG, code + 1) - start);
+            byte[] utf8 = new byte[length];
+            MemorySegment.copy(bytes, ValueLayout.JAVA_BYTE, start, utf8, 0, length);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        long byteSize() {
+            return bytes.byteSize() + offsets.byteSize() + slots.byteSize();
+        }
+
+        Dictionary copyTo(Arena target) {
+            return new Dictionary(target, copy(target, bytes, byteCount), copy(target, offsets, (count + 1L) * Long.BYTES),
+                    copy(target, slots, slots.byteSize()), count);
+        }
+
+        // Slot of the value, or the empty slot where it would be added
+        private long find(byte[] utf8) {
+            MemorySegment value = MemorySegment.ofArray(utf8);
+            long mask = slots.byteSize() / Integer.BYTES - 1;
+            for (long slot = hash(value, 0, utf8.length) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots.getAtIndex(ValueLayout.JAVA_INT, slot);
+                if (entry == 0) {
+                    return slot;
+                }
+                long start = offsets.getAtIndex(ValueLayout.JAVA_LONG, entry - 1);
+                long end = offsets.getAtIndex(ValueLayout.JAVA_LONG, entry);
+                if (end - start == utf8.length && MemorySegment.mismatch(bytes, start, end, value, 0, utf8.length) == -1) {
+                    return slot;
+                }
+            }
+        }
+
+        private void rehash(long slotCount) {
+            slots = arena.allocate(slotCount * Integer.BYTES, Long.BYTES);
+            long mask = slotCount - 1;
+            for (int code = 0; code < count; code++) {
+                long start = offsets.getAtIndex(ValueLayout.JAVA_LONG, code);
+                long end = offsets.getAtIndex(ValueLayout.JAVA_LONG, code + 1);
+                long slot = hash(bytes, start, end - start) & mask;
+                while (slots.getAtIndex(ValueLayout.JAVA_INT, slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.setAtIndex(ValueLayout.JAVA_INT, slot, code + 1);
+            }
+        }
+
+        // FNV-1a, then the finalizer of MurmurHash3 to spread it over the low bits used as slot
+        private static int hash(MemorySegment segment, long start, long length) {
+            int hash = 0x811C9DC5;
+            for (long i = start; i < start + length; i++) {
+                hash = (hash ^ segment.get(ValueLayout.JAVA_BYTE, i)) * 0x01000193;
+            }
+            hash ^= hash >>> 16;
+            hash *= 0x85EBCA6B;
+            hash ^= hash >>> 13;
+            hash *= 0xC2B2AE35;
+            return hash ^ hash >>> 16;
+        }
+
+    }
+
+    // Memory of the old segment is released only with its arena, so segments at least double to amortize that
+    private static MemorySegment grow(Arena arena, MemorySegment segment, long minByteSize) {
+        MemorySegment grown = arena.allocate(Math.max(minByteSize, segment.byteSize() * 2), Long.BYTES);
+        MemorySegment.copy(segment, 0, grown, 0, segment.byteSize());
+        return grown;
+    }
+
+    private static MemorySegment copy(Arena arena, MemorySegment segment, long byteSize) {
+        MemorySegment copy = arena.allocate(byteSize, Long.BYTES);
+        MemorySegment.copy(segment, 0, copy, 0, byteSize);
+        return copy;
+    }
+
+}